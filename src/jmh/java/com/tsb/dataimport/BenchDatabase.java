@@ -0,0 +1,140 @@
+package com.tsb.dataimport;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Benchmark 用的 H2 (Oracle mode) 資料庫：表結構直接讀專案根目錄的 DDL .txt，
+ * 再依參數產生 BANCS_MIN_CLNA / BANCS_SK_CUST_INFO / XREF 假資料。
+ */
+final class BenchDatabase {
+
+    static final String[] DDL_FILES = {
+        "BANCS_MIN_CLNA.txt", "BANCS_SK_CUST_INFO.txt", "XREF.txt",
+        "TRANSFERACCOUNT.txt", "CUSTSETTRANSACCT.txt",
+        "DATATRANSFER_CHECKPOINT.txt", "DATATRANSFER_WATERMARK.txt", "DATATRANSFER_PARTITION_LEASE.txt"
+    };
+    static final String[] TARGET_TABLES = {"TRANSFERACCOUNT", "CUSTSETTRANSACCT"};
+
+    private static final int INSERT_BATCH = 1000;
+    // 每個客戶平均幾個帳號
+    private static final int ACCOUNTS_PER_CUSTOMER = 2;
+
+    private BenchDatabase() {
+    }
+
+    static JdbcDataSource create(String name) {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + name + ";MODE=Oracle;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        ds.setPassword("");
+        return ds;
+    }
+
+    /** DDL 檔在 -Dbench.ddl.dir 指定的目錄 (預設為目前目錄，也就是專案根目錄) */
+    static void createSchema(Connection conn) throws SQLException, IOException {
+        Path dir = Paths.get(System.getProperty("bench.ddl.dir", "."));
+        try (Statement st = conn.createStatement()) {
+            for (String file : DDL_FILES) {
+                st.execute(toSql(Files.readString(dir.resolve(file), StandardCharsets.UTF_8)));
+            }
+            // 正式環境上的 PK / 索引
+            st.execute("CREATE UNIQUE INDEX BANCS_MIN_CLNA_PK ON BANCS_MIN_CLNA (clna_cust_id_no, clna_bsb_no, clna_acct_no)");
+            st.execute("CREATE INDEX BANCS_SK_CUST_INFO_IX ON BANCS_SK_CUST_INFO (sk_cust_id)");
+            st.execute("CREATE INDEX XREF_IX ON XREF (extn_ref_no)");
+        }
+    }
+
+    /** DDL .txt 是 "create table X { ... }" 的寫法，外層大括號換成小括號 */
+    static String toSql(String ddl) {
+        int open = ddl.indexOf('{');
+        int close = ddl.lastIndexOf('}');
+        if (open < 0 || close < open) return ddl.trim();
+        return ddl.substring(0, open) + "(" + ddl.substring(open + 1, close) + ")";
+    }
+
+    /**
+     * @param rows           BANCS_MIN_CLNA 筆數
+     * @param branch103Ratio 分行 103 (需 XREF 轉換) 的比例
+     * @param missRatio      客戶在 BANCS_SK_CUST_INFO 查不到的比例
+     */
+    static void populate(Connection conn, int rows, double branch103Ratio, double missRatio, long seed) throws SQLException {
+        Random random = new Random(seed);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement clna = conn.prepareStatement(
+                 "INSERT INTO BANCS_MIN_CLNA (clna_cust_id_no, clna_bsb_no, clna_acct_no, clna_system, clna_status, "
+                     + "clna_last_maint_date, clna_last_maint_branch, clna_last_maint_maint_teller, clna_nom_acct_type, "
+                     + "transfer_note, issync) VALUES (?, ?, ?, 'SAV', 'A', ?, '0001', '00001', ?, ?, 'N')");
+             PreparedStatement cust = conn.prepareStatement(
+                 "INSERT INTO BANCS_SK_CUST_INFO (cust_no, sk_cust_id, ts_cust_id, cust_re_no_flag, cust_id_type) "
+                     + "VALUES (?, ?, ?, 'N', ?)");
+             PreparedStatement xref = conn.prepareStatement(
+                 "INSERT INTO XREF (inst_no, extn_ref_no, intn_ref_no, type, status, lst_mtn_dt) "
+                     + "VALUES ('003', ?, ?, 'A', '00', '20240101')")) {
+            int customers = Math.max(1, rows / ACCOUNTS_PER_CUSTOMER);
+            for (int c = 0; c < customers; c++) {
+                if (random.nextDouble() < missRatio) continue;
+                cust.setString(1, String.format("%016d", c));
+                cust.setString(2, custId(c));
+                cust.setString(3, String.format("T%010d", c));
+                cust.setString(4, (c & 1) == 0 ? "01" : "02");
+                cust.addBatch();
+                if ((c + 1) % INSERT_BATCH == 0) cust.executeBatch();
+            }
+            cust.executeBatch();
+
+            int xrefBatched = 0;
+            for (int i = 0; i < rows; i++) {
+                String acctNo = String.format("%016d", i);
+                String bsbNo = random.nextDouble() < branch103Ratio
+                    ? XrefResolver.XREF_BSB_NO
+                    : String.format("%03d", 1 + random.nextInt(99));
+                clna.setString(1, custId(i % customers));
+                clna.setString(2, bsbNo);
+                clna.setString(3, acctNo);
+                clna.setString(4, String.format("2024%02d%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+                clna.setString(5, random.nextBoolean() ? "0" : "1");
+                clna.setString(6, "note " + i);
+                clna.addBatch();
+                if ((i + 1) % INSERT_BATCH == 0) clna.executeBatch();
+
+                // 大部分 103 帳號有 XREF 對應，少數沒有 (維持原帳號)
+                if (XrefResolver.XREF_BSB_NO.equals(bsbNo) && random.nextInt(10) != 0) {
+                    xref.setString(1, acctNo);
+                    xref.setString(2, String.format("%016d", rows + i));
+                    xref.addBatch();
+                    if (++xrefBatched % INSERT_BATCH == 0) xref.executeBatch();
+                }
+            }
+            clna.executeBatch();
+            xref.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    static void truncateTargets(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String table : TARGET_TABLES) {
+                st.execute("TRUNCATE TABLE " + table);
+            }
+            st.execute("DELETE FROM DATATRANSFER_CHECKPOINT");
+        }
+    }
+
+    private static String custId(int c) {
+        return String.format("C%010d", c);
+    }
+}
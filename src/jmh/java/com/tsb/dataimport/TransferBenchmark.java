@@ -0,0 +1,244 @@
+package com.tsb.dataimport;
+
+import com.tsb.utils.NotificationProperties;
+import com.tsb.utils.NotificationService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搬檔 hot path 的 JMH benchmark：整體 (DataTransferService.runAll) 與各階段
+ * (分頁讀取、客戶查詢、XREF 轉換、批次寫入) 分開量測。
+ * 結果中的 rows 欄位即每秒處理筆數。
+ *
+ * <pre>
+ * mvn -Pbenchmark verify
+ * mvn -Pbenchmark verify -Djmh.args="TransferBenchmark.endToEnd -p rows=10000000 -p missRatio=0.2"
+ * mvn -Pbenchmark verify -Djmh.args="TransferBenchmark.readPages -prof gc"   (每筆配置量看 gc.alloc.rate.norm / rows)
+ * </pre>
+ *
+ * H2 的執行計畫與 Oracle 不同，數字只適合比較同一環境下不同版本/參數的差異。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class TransferBenchmark {
+
+    private static final String SOURCE_TABLE = "BANCS_MIN_CLNA";
+
+    /** 一個 trial 共用的資料庫與已讀出的來源頁 */
+    @State(Scope.Benchmark)
+    public static class Data {
+
+        @Param({"10000", "100000", "1000000"})
+        public int rows;
+
+        @Param({"0.2"})
+        public double branch103Ratio;
+
+        @Param({"0.05"})
+        public double missRatio;
+
+        @Param({"1000"})
+        public int pageSize;
+
+        JdbcDataSource ds;
+        Connection conn;
+        Connection writeConn;
+        TransferMetrics metrics = new TransferMetrics();
+        PreloadedCustInfoLookup preloaded;
+        // 已查過客戶與 XREF 的來源頁，各階段 benchmark 重複使用
+        List<List<ClnaRow>> pages;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            ds = BenchDatabase.create("bench_" + rows + "_" + System.nanoTime());
+            conn = ds.getConnection();
+            BenchDatabase.createSchema(conn);
+            BenchDatabase.populate(conn, rows, branch103Ratio, missRatio, 42L);
+            writeConn = ds.getConnection();
+            writeConn.setAutoCommit(false);
+
+            preloaded = PreloadedCustInfoLookup.load(conn, rows, 1000);
+            pages = new ArrayList<>();
+            try (ClnaPageReader reader = newReader(this);
+                 XrefResolver xref = new XrefResolver(conn, new XrefCache(0))) {
+                for (List<ClnaRow> page = reader.nextPage(); !page.isEmpty(); page = reader.nextPage()) {
+                    preloaded.resolve(page);
+                    xref.resolve(page);
+                    pages.add(page);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            preloaded.close();
+            writeConn.close();
+            try (Statement st = conn.createStatement()) {
+                st.execute("DROP ALL OBJECTS");
+            }
+            conn.close();
+        }
+    }
+
+    /** 整體流程的設定；每次呼叫前清空目標表與 checkpoint */
+    @State(Scope.Benchmark)
+    public static class EndToEnd {
+
+        @Param({"false", "true"})
+        public boolean pipeline;
+
+        @Param({"AUTO"})
+        public String custLookupMode;
+
+        DataTransferService service;
+        TransferMetrics metrics;
+        Connection conn;
+
+        @Setup(Level.Trial)
+        public void setup(Data data) throws Exception {
+            DataTransferProperties props = new DataTransferProperties();
+            props.setSourceTable(SOURCE_TABLE);
+            props.setTargetTables(Arrays.asList(BenchDatabase.TARGET_TABLES));
+            props.setExecutionMode("JAVA");
+            props.setPageSize(data.pageSize);
+            props.setPipelineEnabled(pipeline);
+            props.setCustLookupMode(custLookupMode);
+            props.setRunId("BENCH");
+            props.setProgressLogSeconds(0);
+            metrics = new TransferMetrics();
+            service = new DataTransferService(data.ds, data.ds, props, metrics,
+                new NotificationService(new NotificationProperties()));
+            conn = data.ds.getConnection();
+        }
+
+        @Setup(Level.Invocation)
+        public void clearTargets() throws Exception {
+            BenchDatabase.truncateTargets(conn);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            conn.close();
+        }
+    }
+
+    /** 每秒處理筆數 (JMH 以 throughput 方式回報) */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Benchmark
+    public long endToEnd(EndToEnd e2e, Rows counter) {
+        // 以實際寫入目標表的筆數計 (查無客戶、XREF 對不到或被拒的不算)
+        long before = e2e.metrics.rowsWrittenTotal();
+        e2e.service.runAll(false);
+        long written = e2e.metrics.rowsWrittenTotal() - before;
+        counter.rows += written;
+        return written;
+    }
+
+    @Benchmark
+    public long readPages(Data data, Rows counter) throws Exception {
+        long read = 0;
+        try (ClnaPageReader reader = newReader(data)) {
+            for (List<ClnaRow> page = reader.nextPage(); !page.isEmpty(); page = reader.nextPage()) {
+                read += page.size();
+                // 與轉檔相同，讀完交回重複使用
+                reader.recycle(page);
+            }
+        }
+        counter.rows += read;
+        return read;
+    }
+
+    @Benchmark
+    public long custLookupPreloaded(Data data, Rows counter) throws Exception {
+        for (List<ClnaRow> page : data.pages) {
+            data.preloaded.resolve(page);
+            counter.rows += page.size();
+        }
+        return data.preloaded.hits();
+    }
+
+    @Benchmark
+    public long custLookupBatched(Data data, Rows counter) throws Exception {
+        try (BatchedCustInfoLookup lookup = new BatchedCustInfoLookup(data.conn)) {
+            for (List<ClnaRow> page : data.pages) {
+                lookup.resolve(page);
+                counter.rows += page.size();
+            }
+            return lookup.hits();
+        }
+    }
+
+    @Benchmark
+    public long xrefResolve(Data data, Rows counter) throws Exception {
+        // 每次用新的快取，量的是 IN-list 查詢加上填快取的成本
+        XrefCache cache = new XrefCache(100_000);
+        try (XrefResolver xref = new XrefResolver(data.conn, cache)) {
+            for (List<ClnaRow> page : data.pages) {
+                xref.resolve(page);
+                counter.rows += page.size();
+            }
+        }
+        return cache.mapped.sum();
+    }
+
+    @Benchmark
+    public long writeInsert(Data data, Rows counter) throws Exception {
+        TransferWriter writer = new TransferWriter(data.writeConn, TransferWriter.WriteMode.INSERT, List.of(
+                route(TargetTable.TRANSFERACCOUNT), route(TargetTable.CUSTSETTRANSACCT)),
+            AdaptiveSizer.fixed(500), data.metrics, null);
+        try (writer) {
+            for (List<ClnaRow> page : data.pages) {
+                writer.write(page);
+                counter.rows += page.size();
+            }
+        } finally {
+            // 不留下資料，每次都寫入空表
+            data.writeConn.rollback();
+        }
+        return Arrays.stream(writer.rowsByTarget(null)).sum();
+    }
+
+    private static TransferWriter.Route route(TargetTable target) {
+        return new TransferWriter.Route(target, target.name(), null, Set.of(target.defaultAcctTypes), Set.of("0"), null, null);
+    }
+
+    private static ClnaPageReader newReader(Data data) throws Exception {
+        return new ClnaPageReader(data.conn, SOURCE_TABLE, SourceFilter.none(), data.pageSize,
+            AdaptiveSizer.fixed(1000), data.metrics);
+    }
+}
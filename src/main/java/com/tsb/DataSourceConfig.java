@@ -0,0 +1,52 @@
+package com.tsb;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * mainDataSource (spring.datasource.*) 與 lookupDataSource (lookup.datasource.*)。
+ * lookup 未設定 url 時與 main 連同一個資料庫 (但各自一個連線池)。
+ * 連線池在第一次取連線時才建立連線，fast-start 的 CDS training run 建好 context 就結束，不會連 DB。
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties mainDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("lookup.datasource")
+    public DataSourceProperties lookupDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean("mainDataSource")
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource mainDataSource(@Qualifier("mainDataSourceProperties") DataSourceProperties properties) {
+        return build(properties, "main");
+    }
+
+    @Bean("lookupDataSource")
+    @ConfigurationProperties("lookup.datasource.hikari")
+    public HikariDataSource lookupDataSource(@Qualifier("mainDataSourceProperties") DataSourceProperties main,
+                                             @Qualifier("lookupDataSourceProperties") DataSourceProperties lookup) {
+        return build(lookup.getUrl() == null ? main : lookup, "lookup");
+    }
+
+    private static HikariDataSource build(DataSourceProperties properties, String poolName) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName(poolName);
+        return ds;
+    }
+}
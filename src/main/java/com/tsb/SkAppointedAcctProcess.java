@@ -1,16 +1,24 @@
 package com.tsb;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 import com.tsb.dataimport.DataTransferProperties;
 import com.tsb.test.TestTableProperties;
+import com.tsb.utils.NotificationProperties;
 
+/**
+ * 批次程式：不啟動 web，bean 延遲建立 (spring.main.*)，跑完 {@link com.tsb.dataimport.ImportRunner} 即關閉 context 並結束 JVM。
+ * 參數見 ImportRunner；啟動加速 (AOT / CDS) 見 pom.xml 的 fast-start profile。
+ */
 @SpringBootApplication
-@EnableConfigurationProperties({DataTransferProperties.class, TestTableProperties.class})
+@EnableConfigurationProperties({DataTransferProperties.class, TestTableProperties.class, NotificationProperties.class})
 public class SkAppointedAcctProcess {
     public static void main(String[] args) {
-        SpringApplication.run(SkAppointedAcctProcess.class, args);
+        SpringApplication app = new SpringApplication(SkAppointedAcctProcess.class);
+        app.setWebApplicationType(WebApplicationType.NONE);
+        System.exit(SpringApplication.exit(app.run(args)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package com.tsb.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 依實測的 rows/s 自動調整批次大小 (executeBatch 筆數、fetch size)。
+ *
+ * 每累積 {@link #WINDOW} 次量測算一次吞吐量，以 hill climbing 往變快的方向放大/縮小，
+ * 變慢就反轉方向並縮小步幅，最後會在目前 DB 的最佳值附近小幅擺動。
+ * 非執行緒安全，每個 reader / writer 各一個。
+ */
+final class AdaptiveSizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveSizer.class);
+
+    static final int WINDOW = 8;
+    private static final double INITIAL_STEP = 1.5;
+    private static final double MIN_STEP = 1.1;
+    /** 吞吐量下降超過 3% 才視為變慢，避免雜訊造成來回跳動 */
+    private static final double TOLERANCE = 0.97;
+
+    private final String name;
+    private final int min;
+    private final int max;
+    private final boolean adaptive;
+
+    private int current;
+    private int direction = 1;
+    private double step = INITIAL_STEP;
+    private double lastRate = -1;
+    private long windowRows;
+    private long windowNanos;
+    private int windowSamples;
+
+    private AdaptiveSizer(String name, int initial, int min, int max, boolean adaptive) {
+        this.name = name;
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.current = Math.max(this.min, Math.min(this.max, initial));
+        this.adaptive = adaptive;
+    }
+
+    static AdaptiveSizer fixed(int size) {
+        return new AdaptiveSizer("fixed", size, size, size, false);
+    }
+
+    static AdaptiveSizer adaptive(String name, int initial, int min, int max) {
+        return new AdaptiveSizer(name, initial, min, max, true);
+    }
+
+    int current() {
+        return current;
+    }
+
+    /** 記錄一次量測：處理 rows 筆花了 nanos */
+    void record(int rows, long nanos) {
+        if (!adaptive || rows <= 0) return;
+        windowRows += rows;
+        windowNanos += nanos;
+        if (++windowSamples < WINDOW) return;
+
+        double rate = windowRows * 1_000_000_000d / Math.max(1, windowNanos);
+        if (lastRate >= 0 && rate < lastRate * TOLERANCE) {
+            direction = -direction;
+            step = Math.max(MIN_STEP, Math.sqrt(step));
+        }
+        lastRate = rate;
+        int next = direction > 0 ? (int) Math.ceil(current * step) : (int) (current / step);
+        next = Math.max(min, Math.min(max, next));
+        if (next == current) {
+            // 到邊界了，下次往回試
+            direction = -direction;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}: rate={} rows/s size {} -> {}", name, (long) rate, current, next);
+        }
+        current = next;
+        windowRows = 0;
+        windowNanos = 0;
+        windowSamples = 0;
+    }
+
+    @Override
+    public String toString() {
+        return adaptive ? name + "=" + current + " (adaptive " + min + ".." + max + ")" : String.valueOf(current);
+    }
+}
@@ -0,0 +1,126 @@
+package com.tsb.dataimport;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BANCS_SK_CUST_INFO 太大無法預載時使用：每頁把不重複的 sk_cust_id 收集起來，
+ * 以 IN-list 一次查回 (每次最多 {@link #IN_LIST_SIZE} 個)，取代逐筆查詢。
+ *
+ * 不足 IN_LIST_SIZE 的部分以最後一個 key 補滿，讓 statement 只需 prepare 一次。
+ * sk_cust_id 是 char(11)，bind 值先補空白到 11 碼 (VARCHAR bind 與 CHAR 欄位比較時不補空白)，
+ * 結果與預載模式 (兩邊都 trim) 一致。
+ */
+final class BatchedCustInfoLookup implements CustInfoLookup {
+
+    /** Oracle IN-list 上限 */
+    static final int IN_LIST_SIZE = 1000;
+    private static final int CUST_ID_WIDTH = 11;
+
+    private final Connection lookupConn;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private PreparedStatement stmt;
+
+    BatchedCustInfoLookup(Connection lookupConn) {
+        this(lookupConn, new LongAdder(), new LongAdder());
+    }
+
+    private BatchedCustInfoLookup(Connection lookupConn, LongAdder hits, LongAdder misses) {
+        this.lookupConn = lookupConn;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    @Override
+    public CustInfoLookup forConnection(Connection conn) {
+        return new BatchedCustInfoLookup(conn, hits, misses);
+    }
+
+    @Override
+    public boolean usesConnection() {
+        return true;
+    }
+
+    @Override
+    public void resolve(List<ClnaRow> rows) throws SQLException {
+        LinkedHashSet<String> distinct = new LinkedHashSet<>();
+        for (ClnaRow row : rows) {
+            if (row.custIdNo != null) distinct.add(row.custIdNo);
+        }
+        Map<String, String[]> found = new HashMap<>(distinct.size() * 2);
+        List<String> keys = new ArrayList<>(distinct);
+        for (int from = 0; from < keys.size(); from += IN_LIST_SIZE) {
+            query(keys.subList(from, Math.min(from + IN_LIST_SIZE, keys.size())), found);
+        }
+        for (ClnaRow row : rows) {
+            String[] v = row.custIdNo == null ? null : found.get(row.custIdNo);
+            if (v != null) {
+                row.tsCustId = v[0];
+                row.custIdType = v[1];
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+        }
+    }
+
+    private void query(List<String> keys, Map<String, String[]> found) throws SQLException {
+        if (stmt == null) {
+            StringBuilder sb = new StringBuilder(
+                    "SELECT sk_cust_id, ts_cust_id, cust_id_type FROM BANCS_SK_CUST_INFO WHERE sk_cust_id IN (");
+            for (int i = 0; i < IN_LIST_SIZE; i++) {
+                sb.append(i == 0 ? "?" : ", ?");
+            }
+            stmt = lookupConn.prepareStatement(sb.append(")").toString());
+            stmt.setFetchSize(IN_LIST_SIZE);
+        }
+        String last = keys.get(keys.size() - 1);
+        for (int i = 0; i < IN_LIST_SIZE; i++) {
+            stmt.setString(i + 1, pad(i < keys.size() ? keys.get(i) : last));
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String ts = trim(rs.getString(2));
+                if (ts == null) continue;
+                // 重複 key 保留第一筆
+                found.putIfAbsent(trim(rs.getString(1)), new String[] { ts, trim(rs.getString(3)) });
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (stmt != null) stmt.close();
+    }
+
+    @Override
+    public long hits() { return hits.sum(); }
+
+    @Override
+    public long misses() { return misses.sum(); }
+
+    @Override
+    public String describe() {
+        return "batched(inListSize=" + IN_LIST_SIZE + ")";
+    }
+
+    private static String pad(String id) {
+        if (id.length() >= CUST_ID_WIDTH) return id;
+        StringBuilder sb = new StringBuilder(CUST_ID_WIDTH).append(id);
+        while (sb.length() < CUST_ID_WIDTH) sb.append(' ');
+        return sb.toString();
+    }
+
+    private static String trim(String s) {
+        return s == null ? null : s.trim();
+    }
+}
@@ -0,0 +1,174 @@
+package com.tsb.dataimport;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 轉檔 checkpoint，存在主庫 DATATRANSFER_CHECKPOINT，每個 (run_id, partition_no) 一筆：
+ * 最後 commit 的來源鍵值、累計讀取筆數、各目標表 ({@link TargetTable}) 累計寫入筆數與狀態 (RUNNING / DONE)。
+ *
+ * checkpoint 以 writer 的連線寫入，與該頁目標表資料在同一個 transaction commit，
+ * 所以 resume 時只會重做失敗的那一頁。
+ */
+final class CheckpointStore {
+
+    static final String CHECKPOINT_TABLE = "DATATRANSFER_CHECKPOINT";
+
+    private final DataSource ds;
+
+    CheckpointStore(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /** 各目標表累計寫入筆數的欄位，依 {@link TargetTable#ordinal()} */
+    static String rowsColumn(TargetTable target) {
+        switch (target) {
+            case TRANSFERACCOUNT: return "transfer_rows";
+            case CUSTSETTRANSACCT: return "custset_rows";
+            case FREQUENCYACCOUNT: return "frequency_rows";
+            default: return "nb_frequency_rows";
+        }
+    }
+
+    static final class Checkpoint {
+        final int partitionCount;
+        final String lastCustId;
+        final String lastBsbNo;
+        final String lastAcctNo;
+        final long rowsRead;
+        /** 各目標表累計寫入筆數，依 {@link TargetTable#ordinal()} */
+        final long[] targetRows;
+        final boolean done;
+
+        Checkpoint(int partitionCount, String lastCustId, String lastBsbNo, String lastAcctNo,
+                   long rowsRead, long[] targetRows, boolean done) {
+            this.partitionCount = partitionCount;
+            this.lastCustId = lastCustId;
+            this.lastBsbNo = lastBsbNo;
+            this.lastAcctNo = lastAcctNo;
+            this.rowsRead = rowsRead;
+            this.targetRows = targetRows;
+            this.done = done;
+        }
+
+        boolean hasKey() {
+            return lastCustId != null;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("(").append(lastCustId).append(", ").append(lastBsbNo).append(", ")
+                .append(lastAcctNo).append(") read=").append(rowsRead);
+            for (TargetTable t : TargetTable.values()) {
+                if (targetRows[t.ordinal()] > 0) sb.append(' ').append(t).append('=').append(targetRows[t.ordinal()]);
+            }
+            return sb.append(done ? " DONE" : "").toString();
+        }
+    }
+
+    /** 沒有 checkpoint 時回傳 null */
+    Checkpoint load(String runId, int partitionNo) throws SQLException {
+        TargetTable[] targets = TargetTable.values();
+        StringBuilder sql = new StringBuilder("SELECT partition_count, last_cust_id, last_bsb_no, last_acct_no, rows_read, status");
+        for (TargetTable t : targets) sql.append(", ").append(rowsColumn(t));
+        sql.append(" FROM ").append(CHECKPOINT_TABLE).append(" WHERE run_id = ? AND partition_no = ?");
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            ps.setString(1, runId);
+            ps.setInt(2, partitionNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                long[] targetRows = new long[targets.length];
+                for (int i = 0; i < targets.length; i++) {
+                    targetRows[i] = rs.getLong(7 + i);
+                }
+                return new Checkpoint(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                    rs.getLong(5), targetRows, "DONE".equals(rs.getString(6)));
+            }
+        }
+    }
+
+    /** 不 resume 時清掉同一個 runId 的舊 checkpoint */
+    void clear(String runId) throws SQLException {
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM " + CHECKPOINT_TABLE + " WHERE run_id = ?")) {
+            ps.setString(1, runId);
+            ps.executeUpdate();
+            if (!conn.getAutoCommit()) conn.commit();
+        }
+    }
+
+    /** 在 writer 的連線上開一個 checkpoint 寫入器，save / markDone 都不 commit */
+    Writer open(Connection conn, String runId, int partitionNo, int partitionCount) throws SQLException {
+        return new Writer(conn, runId, partitionNo, partitionCount);
+    }
+
+    static final class Writer implements AutoCloseable {
+        /** UPDATE / INSERT 各自的 bind 數：partition_count, 三個鍵值, rows_read, status, 各目標表筆數 */
+        private static final int FIELDS = 6 + TargetTable.values().length;
+
+        private final String runId;
+        private final int partitionNo;
+        private final int partitionCount;
+        private final PreparedStatement ps;
+
+        private Writer(Connection conn, String runId, int partitionNo, int partitionCount) throws SQLException {
+            this.runId = runId;
+            this.partitionNo = partitionNo;
+            this.partitionCount = partitionCount;
+            StringBuilder update = new StringBuilder();
+            StringBuilder columns = new StringBuilder();
+            StringBuilder values = new StringBuilder();
+            for (TargetTable t : TargetTable.values()) {
+                update.append(", c.").append(rowsColumn(t)).append(" = ?");
+                columns.append(", ").append(rowsColumn(t));
+                values.append(", ?");
+            }
+            this.ps = conn.prepareStatement(
+                "MERGE INTO " + CHECKPOINT_TABLE + " c USING (SELECT ? AS run_id, ? AS partition_no FROM DUAL) s " +
+                "ON (c.run_id = s.run_id AND c.partition_no = s.partition_no) " +
+                "WHEN MATCHED THEN UPDATE SET c.partition_count = ?, c.last_cust_id = ?, c.last_bsb_no = ?, c.last_acct_no = ?, " +
+                "c.rows_read = ?, c.status = ?" + update + ", c.updated_at = SYSTIMESTAMP " +
+                "WHEN NOT MATCHED THEN INSERT (run_id, partition_no, partition_count, last_cust_id, last_bsb_no, last_acct_no, " +
+                "rows_read, status" + columns + ", updated_at) " +
+                "VALUES (s.run_id, s.partition_no, ?, ?, ?, ?, ?, ?" + values + ", SYSTIMESTAMP)");
+        }
+
+        /** @param targetRows 各目標表累計寫入筆數，依 {@link TargetTable#ordinal()} */
+        void save(ClnaRow last, long rowsRead, long[] targetRows) throws SQLException {
+            write(last.keyCustId, last.keyBsbNo, last.keyAcctNo, rowsRead, targetRows, "RUNNING");
+        }
+
+        void markDone(String lastCustId, String lastBsbNo, String lastAcctNo,
+                      long rowsRead, long[] targetRows) throws SQLException {
+            write(lastCustId, lastBsbNo, lastAcctNo, rowsRead, targetRows, "DONE");
+        }
+
+        private void write(String custId, String bsbNo, String acctNo,
+                           long rowsRead, long[] targetRows, String status) throws SQLException {
+            ps.setString(1, runId);
+            ps.setInt(2, partitionNo);
+            // UPDATE 與 INSERT 兩段各 bind 一次
+            for (int base = 3; base <= 3 + FIELDS; base += FIELDS) {
+                ps.setInt(base, partitionCount);
+                ps.setString(base + 1, custId);
+                ps.setString(base + 2, bsbNo);
+                ps.setString(base + 3, acctNo);
+                ps.setLong(base + 4, rowsRead);
+                ps.setString(base + 5, status);
+                for (int i = 0; i < targetRows.length; i++) {
+                    ps.setLong(base + 6 + i, targetRows[i]);
+                }
+            }
+            ps.executeUpdate();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            ps.close();
+        }
+    }
+}
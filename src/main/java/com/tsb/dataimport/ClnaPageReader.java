@@ -0,0 +1,170 @@
+package com.tsb.dataimport;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BANCS_MIN_CLNA keyset (seek) 分頁讀取：依 (clna_cust_id_no, clna_bsb_no, clna_acct_no) 排序，
+ * 每次從上一頁最後一筆之後取 pageSize 筆。每頁成本只跟 pageSize 有關，不會隨頁數增加。
+ * 需要來源表在這三個欄位上有索引 (PK)。
+ *
+ * 欄位以位置讀取；分行與類別代碼改用 {@link Codes} 的共用字串，頁與 row 物件經 {@link PagePool} 重複使用。
+ */
+final class ClnaPageReader implements ClnaSource {
+
+    private final int pageSize;
+    private final SourceFilter filter;
+    private final PreparedStatement firstStmt;
+    private final PreparedStatement nextStmt;
+    private final AdaptiveSizer fetchSizer;
+    private final TransferMetrics metrics;
+    private final PagePool pool;
+
+    // 上一頁最後一筆的鍵值 (保留原值不 trim，確保比較條件與 ORDER BY 一致)，為 null 表示第一頁
+    private String lastCustId;
+    private String lastBsbNo;
+    private String lastAcctNo;
+    private boolean more = true;
+    // 目前讀過的最大 clna_last_maint_date (yyyyMMdd)，delta 模式更新 watermark 用
+    private String maxLastMaintDate;
+
+    /**
+     * @param fetchSizer 每次 round trip 取回的筆數 (不會超過 pageSize)
+     */
+    ClnaPageReader(Connection conn, String sourceTable, SourceFilter filter, int pageSize,
+                   AdaptiveSizer fetchSizer, TransferMetrics metrics) throws SQLException {
+        this.pageSize = pageSize;
+        this.filter = filter;
+        this.fetchSizer = fetchSizer;
+        this.metrics = metrics;
+        this.pool = new PagePool(pageSize);
+        this.firstStmt = conn.prepareStatement(buildPageSql(sourceTable, filter, false));
+        this.nextStmt = conn.prepareStatement(buildPageSql(sourceTable, filter, true));
+    }
+
+    /** resume 用：從 checkpoint 記錄的鍵值之後開始讀 */
+    @Override
+    public void resumeAfter(CheckpointStore.Checkpoint checkpoint) {
+        if (!checkpoint.hasKey()) return;
+        this.lastCustId = checkpoint.lastCustId;
+        this.lastBsbNo = checkpoint.lastBsbNo;
+        this.lastAcctNo = checkpoint.lastAcctNo;
+    }
+
+    @Override
+    public List<ClnaRow> nextPage() throws SQLException {
+        if (!more) return new ArrayList<>(0);
+
+        PreparedStatement srcStmt;
+        if (lastCustId == null) {
+            srcStmt = firstStmt;
+            int idx = filter.bind(srcStmt, 1);
+            srcStmt.setInt(idx, pageSize);
+        } else {
+            srcStmt = nextStmt;
+            int idx = filter.bind(srcStmt, 1);
+            srcStmt.setString(idx++, lastCustId);
+            srcStmt.setString(idx++, lastCustId);
+            srcStmt.setString(idx++, lastBsbNo);
+            srcStmt.setString(idx++, lastBsbNo);
+            srcStmt.setString(idx++, lastAcctNo);
+            srcStmt.setInt(idx, pageSize);
+        }
+        srcStmt.setFetchSize(Math.min(fetchSizer.current(), pageSize));
+        long t0 = System.nanoTime();
+        List<ClnaRow> page = pool.take();
+        int n = 0;
+        try (ResultSet rs = srcStmt.executeQuery()) {
+            while (rs.next()) {
+                // 欄位順序同 buildPageSql 的 SELECT
+                lastCustId = rs.getString(1);
+                lastBsbNo = rs.getString(2);
+                lastAcctNo = rs.getString(3);
+                ClnaRow row = PagePool.slot(page, n++);
+                row.keyCustId = lastCustId;
+                row.keyBsbNo = lastBsbNo;
+                row.keyAcctNo = lastAcctNo;
+                row.custIdNo = trim(lastCustId);
+                row.bsbNo = Codes.canonical(trim(lastBsbNo));
+                row.acctNo = trim(lastAcctNo);
+                row.nomAcctType = Codes.canonical(trim(rs.getString(4)));
+                row.lastMaintDate = trim(rs.getString(5));
+                row.transferNote = trim(rs.getString(6));
+                if (row.lastMaintDate != null
+                        && (maxLastMaintDate == null || row.lastMaintDate.compareTo(maxLastMaintDate) > 0)) {
+                    maxLastMaintDate = row.lastMaintDate;
+                }
+            }
+        } finally {
+            PagePool.truncate(page, n);
+        }
+        long elapsed = System.nanoTime() - t0;
+        fetchSizer.record(n, elapsed);
+        metrics.pageFetch.record(elapsed, TimeUnit.NANOSECONDS);
+        metrics.rowsRead.increment(n);
+        if (n < pageSize) more = false;
+        return page;
+    }
+
+    @Override
+    public void recycle(List<ClnaRow> page) {
+        pool.recycle(page);
+    }
+
+    @Override
+    public AdaptiveSizer fetchSizer() {
+        return fetchSizer;
+    }
+
+    @Override
+    public String maxLastMaintDate() {
+        return maxLastMaintDate;
+    }
+
+    /** 目前讀到的最後鍵值，給 log 用 */
+    @Override
+    public String lastKey() {
+        return "(" + lastCustId + ", " + lastBsbNo + ", " + lastAcctNo + ")";
+    }
+
+    /**
+     * bind 順序：filter 的值，接著
+     * afterKey=false：pageSize
+     * afterKey=true ：last cust_id x2，last bsb x2，last acct，pageSize
+     */
+    private static String buildPageSql(String sourceTable, SourceFilter filter, boolean afterKey) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT clna_cust_id_no, clna_bsb_no, clna_acct_no, clna_nom_acct_type, clna_last_maint_date, transfer_note FROM (")
+          .append("SELECT clna_cust_id_no, clna_bsb_no, clna_acct_no, clna_nom_acct_type, clna_last_maint_date, transfer_note FROM ")
+          .append(sourceTable);
+        String where = " WHERE ";
+        if (!filter.isEmpty()) {
+            sb.append(where).append(filter.sql());
+            where = " AND ";
+        }
+        if (afterKey) {
+            // 開頭的 >= 讓 Oracle 可以直接做 index range scan
+            sb.append(where).append("clna_cust_id_no >= ? AND (clna_cust_id_no > ? OR clna_bsb_no > ? OR (clna_bsb_no = ? AND clna_acct_no > ?))");
+        }
+        sb.append(" ORDER BY clna_cust_id_no, clna_bsb_no, clna_acct_no) WHERE ROWNUM <= ?");
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            firstStmt.close();
+        } finally {
+            nextStmt.close();
+        }
+    }
+
+    private static String trim(String s) {
+        return s == null ? null : s.trim();
+    }
+}
@@ -0,0 +1,32 @@
+package com.tsb.dataimport;
+
+/**
+ * BANCS_MIN_CLNA 一筆來源資料 (已 trim)，加上查詢 BANCS_SK_CUST_INFO / XREF 後補上的欄位。
+ */
+final class ClnaRow {
+
+    // 來源主鍵原值 (未 trim)，用於分頁、回寫 issync 等需與來源完全相同的比較
+    String keyCustId;
+    String keyBsbNo;
+    String keyAcctNo;
+
+    String custIdNo;
+    String bsbNo;
+    String acctNo;
+    String nomAcctType;
+    String lastMaintDate;
+    String transferNote;
+
+    // lookup 結果，tsCustId 為 null 表示查無客戶
+    String tsCustId;
+    String custIdType;
+
+    // 寫入目標表用的分行/帳號 (分行 103 經 XREF 轉換後為 812 + intn_ref_no)
+    String targetBsbNo;
+    String targetAcctNo;
+
+    // 任一目標表寫入失敗、交給 RejectStore 時為 true (TransferWriter 每頁重設)
+    boolean rejected;
+    // INSERT 模式 FREQUENCYACCOUNT 配到的 seq_no，0 = 尚未配號；切批重試時沿用 (TransferWriter 每頁重設)
+    long seqNo;
+}
@@ -0,0 +1,37 @@
+package com.tsb.dataimport;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * BANCS_MIN_CLNA 格式資料的來源，依序一頁一頁讀出。
+ * 實作：{@link ClnaPageReader} (讀 DB 表)、{@link FlatFileSource} (直接讀 BANCS 落地檔)。
+ */
+interface ClnaSource extends AutoCloseable {
+
+    /**
+     * 讀下一頁；已讀完時回傳空 list。回傳的 list 交回 {@link #recycle} 之前歸呼叫端所有，可直接交給其他執行緒。
+     */
+    List<ClnaRow> nextPage() throws SQLException;
+
+    /**
+     * 交回已寫完的頁 (之後不可再存取其中的 row)，之後的 nextPage 會沿用同一批物件。
+     * 可由其他執行緒呼叫；不交回也可以。
+     */
+    void recycle(List<ClnaRow> page);
+
+    /** resume 用：從 checkpoint 記錄的位置之後開始讀 */
+    void resumeAfter(CheckpointStore.Checkpoint checkpoint) throws SQLException;
+
+    /** 每次讀取的筆數 (log 用) */
+    AdaptiveSizer fetchSizer();
+
+    /** 目前讀過的最大 clna_last_maint_date (yyyyMMdd) */
+    String maxLastMaintDate();
+
+    /** 目前讀到的位置，給 log 用 */
+    String lastKey();
+
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,53 @@
+package com.tsb.dataimport;
+
+/**
+ * 小值域代碼欄位 (clna_bsb_no、clna_nom_acct_type) 的共用字串：單一 ASCII 字元與三碼數字各只留一個 (intern 過的) 實例，
+ * 不必每筆各留一份；程式裡的 "103"、"0" 等常值也是同一個實例，String.equals 直接以 == 命中。
+ */
+final class Codes {
+
+    private static final String[] ASCII_CHARS = new String[128];
+    private static final String[] DIGITS3 = new String[1000];
+
+    static {
+        for (int c = 0; c < ASCII_CHARS.length; c++) {
+            ASCII_CHARS[c] = String.valueOf((char) c).intern();
+        }
+        for (int i = 0; i < DIGITS3.length; i++) {
+            DIGITS3[i] = new String(new char[] { (char) ('0' + i / 100), (char) ('0' + i / 10 % 10), (char) ('0' + i % 10) }).intern();
+        }
+    }
+
+    private Codes() {
+    }
+
+    /** 單一 ASCII 字元或三碼數字時回傳共用實例，其他原樣回傳 */
+    static String canonical(String s) {
+        if (s == null) return null;
+        switch (s.length()) {
+            case 1: {
+                char c = s.charAt(0);
+                return c < ASCII_CHARS.length ? ASCII_CHARS[c] : s;
+            }
+            case 3: {
+                int d0 = s.charAt(0) - '0';
+                int d1 = s.charAt(1) - '0';
+                int d2 = s.charAt(2) - '0';
+                if ((d0 | d1 | d2) >= 0 && d0 <= 9 && d1 <= 9 && d2 <= 9) return DIGITS3[d0 * 100 + d1 * 10 + d2];
+                return s;
+            }
+            default:
+                return s;
+        }
+    }
+
+    /** c 需小於 128 */
+    static String ascii(int c) {
+        return ASCII_CHARS[c];
+    }
+
+    /** code 需在 0..999 */
+    static String digits3(int code) {
+        return DIGITS3[code];
+    }
+}
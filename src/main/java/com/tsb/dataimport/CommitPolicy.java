@@ -0,0 +1,25 @@
+package com.tsb.dataimport;
+
+/**
+ * commit 間隔：累積寫入的來源筆數達 commitInterval 後，在頁尾 commit (checkpoint 與 commit 對齊在頁的邊界)。
+ * commitInterval <= 0 表示每頁 commit。
+ */
+final class CommitPolicy {
+
+    private final int commitInterval;
+    private long pending;
+
+    CommitPolicy(int commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    /** 記錄寫完一頁，回傳是否該 commit */
+    boolean pageWritten(int rows) {
+        pending += rows;
+        if (commitInterval <= 0 || pending >= commitInterval) {
+            pending = 0;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package com.tsb.dataimport;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * sk_cust_id → (ts_cust_id, cust_id_type) 查詢。
+ *
+ * 一次處理一整頁：依 row.custIdNo 補上 row.tsCustId / row.custIdType，查無則兩者保持 null。
+ */
+interface CustInfoLookup extends AutoCloseable {
+
+    void resolve(List<ClnaRow> rows) throws SQLException;
+
+    long hits();
+
+    long misses();
+
+    /**
+     * 給另一個執行緒用的 lookup。需要自己連線的實作 ({@link #usesConnection()}) 會以 lookupConn
+     * 建立新的實例 (統計共用)；純記憶體的實作直接回傳自己。
+     */
+    default CustInfoLookup forConnection(Connection lookupConn) {
+        return this;
+    }
+
+    default boolean usesConnection() {
+        return false;
+    }
+
+    /** 給 log 用的說明 (模式、記憶體用量等) */
+    String describe();
+
+    /** 釋放 lookup 自己 prepare 的資源；connection 由呼叫端管理 */
+    @Override
+    default void close() throws SQLException {
+    }
+}
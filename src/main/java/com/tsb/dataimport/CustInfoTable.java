@@ -0,0 +1,151 @@
+package com.tsb.dataimport;
+
+/**
+ * BANCS_SK_CUST_INFO 的記憶體查詢表 (open addressing, linear probing)。
+ *
+ * sk_cust_id / ts_cust_id 為 char(11)、cust_id_type 為 char(2)，全部以固定寬度塞進 char[]，
+ * 不建立任何 per-entry 物件，幾百萬筆也只佔連續幾個陣列。
+ * 建好後只讀 (cust_id_type 的共用 String 也在 put 時建好)，可多執行緒共用。
+ */
+final class CustInfoTable {
+
+    static final int KEY_WIDTH = 11;
+    static final int TS_WIDTH = 11;
+    static final int TYPE_WIDTH = 2;
+    private static final int VALUE_WIDTH = TS_WIDTH + TYPE_WIDTH;
+
+    private final int mask;
+    /** 0 = 空位，其餘為 key 的 hash (最低位強制為 1) */
+    private final int[] hashes;
+    private final char[] keys;
+    private final char[] values;
+    /** ts_cust_id 長度 */
+    private final byte[] tsLens;
+    /** cust_id_type 長度，-1 表示 null */
+    private final byte[] typeLens;
+    private int size;
+    /** cust_id_type 只有少數幾種值，ASCII 兩碼以內直接共用同一個 String；只在 put (單執行緒建表) 時寫入 */
+    private final String[] typeCache = new String[128 * 129];
+
+    CustInfoTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / 0.7)) - 1) << 1;
+        this.mask = capacity - 1;
+        this.hashes = new int[capacity];
+        this.keys = new char[capacity * KEY_WIDTH];
+        this.values = new char[capacity * VALUE_WIDTH];
+        this.tsLens = new byte[capacity];
+        this.typeLens = new byte[capacity];
+    }
+
+    /**
+     * 加入一筆，key 重複時保留第一筆 (與逐筆查詢取第一筆的行為一致)。
+     * 傳入值須已 trim；長度超過欄位寬度的資料不收。
+     *
+     * @return 是否實際加入
+     */
+    boolean put(String skCustId, String tsCustId, String custIdType) {
+        if (skCustId == null || tsCustId == null
+                || skCustId.length() > KEY_WIDTH || tsCustId.length() > TS_WIDTH
+                || (custIdType != null && custIdType.length() > TYPE_WIDTH)) {
+            return false;
+        }
+        if (size >= (hashes.length * 0.7)) {
+            throw new IllegalStateException("CustInfoTable full, capacity=" + hashes.length);
+        }
+        int h = hash(skCustId, skCustId.length());
+        int slot = h & mask;
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == h && keyEquals(slot, skCustId, skCustId.length())) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = h;
+        int kOff = slot * KEY_WIDTH;
+        skCustId.getChars(0, skCustId.length(), keys, kOff);
+        for (int i = skCustId.length(); i < KEY_WIDTH; i++) keys[kOff + i] = ' ';
+        int vOff = slot * VALUE_WIDTH;
+        tsCustId.getChars(0, tsCustId.length(), values, vOff);
+        tsLens[slot] = (byte) tsCustId.length();
+        if (custIdType == null) {
+            typeLens[slot] = -1;
+        } else {
+            custIdType.getChars(0, custIdType.length(), values, vOff + TS_WIDTH);
+            typeLens[slot] = (byte) custIdType.length();
+            int idx = typeIndex(vOff + TS_WIDTH, custIdType.length());
+            if (idx >= 0 && typeCache[idx] == null) typeCache[idx] = custIdType;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * 查詢 skCustId，找到時填入 row.tsCustId / row.custIdType。
+     * 尾端空白 (CHAR(11) 補位) 不計，補滿 11 碼與 trim 過的值查到同一筆。
+     */
+    boolean fill(String skCustId, ClnaRow row) {
+        if (skCustId == null) return false;
+        int len = skCustId.length();
+        while (len > 0 && skCustId.charAt(len - 1) == ' ') len--;
+        if (len > KEY_WIDTH) return false;
+        int h = hash(skCustId, len);
+        int slot = h & mask;
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == h && keyEquals(slot, skCustId, len)) {
+                int vOff = slot * VALUE_WIDTH;
+                row.tsCustId = new String(values, vOff, tsLens[slot]);
+                row.custIdType = typeOf(vOff + TS_WIDTH, typeLens[slot]);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() { return size; }
+
+    /** 陣列本體佔用的 bytes (不含物件 header) */
+    long footprintBytes() {
+        long capacity = hashes.length;
+        return capacity * 4 + (long) keys.length * 2 + (long) values.length * 2 + capacity * 2;
+    }
+
+    private boolean keyEquals(int slot, String key, int len) {
+        int off = slot * KEY_WIDTH;
+        for (int i = 0; i < len; i++) {
+            if (keys[off + i] != key.charAt(i)) return false;
+        }
+        for (int i = len; i < KEY_WIDTH; i++) {
+            if (keys[off + i] != ' ') return false;
+        }
+        return true;
+    }
+
+    /** 查詢時只讀 typeCache，非 ASCII 的值每次新建 */
+    private String typeOf(int off, int len) {
+        if (len < 0) return null;
+        if (len == 0) return "";
+        int idx = typeIndex(off, len);
+        String s = idx < 0 ? null : typeCache[idx];
+        return s != null ? s : new String(values, off, len);
+    }
+
+    /** typeCache 的位置，非 ASCII 或空字串時回傳 -1 */
+    private int typeIndex(int off, int len) {
+        if (len <= 0) return -1;
+        char c0 = values[off];
+        char c1 = len == 2 ? values[off + 1] : 0;
+        if (c0 >= 128 || c1 >= 128) return -1;
+        return c0 * 129 + (len == 2 ? c1 + 1 : 0);
+    }
+
+    /** 只算前 len 碼，與 String.hashCode 同公式 */
+    private static int hash(String key, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + key.charAt(i);
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h | 1;
+    }
+}
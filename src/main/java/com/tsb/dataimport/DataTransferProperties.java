@@ -2,18 +2,103 @@ package com.tsb.dataimport;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import java.util.List;
+import java.util.Map;
 
 @ConfigurationProperties(prefix = "datatransfer")
 public class DataTransferProperties {
 
     // 分頁/批次等效能設定
+    // batchSize：每個目標表累積幾筆 executeBatch 一次；commitInterval：累積幾筆來源資料 commit 一次 (<= 0 每頁 commit)
     private int batchSize = 500;
     private int fetchSize = 1000;
     private int pageSize = 1000;
+    private int commitInterval = 0;
+
+    // 依實測 rows/s 自動調整 batchSize / fetchSize (在 min..max 之間)；batchSize 上限不超過 pageSize
+    private boolean adaptiveSizing = false;
+    private int batchSizeMin = 100;
+    private int batchSizeMax = 5000;
+    private int fetchSizeMin = 100;
+    private int fetchSizeMax = 5000;
+
+    // BANCS_SK_CUST_INFO 查詢方式：AUTO / PRELOAD / BATCH
+    // AUTO 會在筆數 <= custPreloadMaxRows 時預載到記憶體，否則改用每頁 IN-list 批次查詢
+    private String custLookupMode = "AUTO";
+    private int custPreloadMaxRows = 5_000_000;
+
+    // 同步模式：FULL = 整表重轉；DELTA = 只轉 issync='N' 或 clna_last_maint_date 晚於 watermark 的資料，
+    // 轉入後回寫 issync='Y'，watermark 存在 DATATRANSFER_WATERMARK
+    private String syncMode = "FULL";
+
+    // 目標表寫入方式：INSERT / MERGE (已存在則略過，可重跑) / UPSERT (已存在則更新，搭配 DELTA)
+    // syncMode=DELTA 不可用 INSERT (異動資料會重複寫入)，啟動時即報錯
+    private String writeMode = "INSERT";
+    // MERGE / UPSERT 的 key 欄位，依目標表 (不含 _TEST 後綴)，未設定預設 userid, brchid, accountno
+    private Map<String, List<String>> mergeKeyColumns;
+
+    // 分行 103 XREF 轉換結果的 LRU 筆數
+    private int xrefCacheSize = 100_000;
+
+    // pipeline 模式：reader / enricher / writer 以有上限的 queue 串接、同時執行
+    private boolean pipelineEnabled = false;
+    private int pipelineQueueDepth = 4;
+    private int enrichThreads = 2;
+
+    // partition 模式：以 ORA_HASH(clna_cust_id_no) 切成 partitionCount 份平行處理 (1 = 不切)
+    private int partitionCount = 1;
+    private int partitionThreads = 4;
+    // 多台 JVM 分工時以 DATATRANSFER_PARTITION_LEASE 認領 partition；同一 run 的 node 必須用相同 runId
+    // (lease 模式必須明確設定 runId，每次新的 run 用新的值)
+    private boolean partitionLeaseEnabled = false;
+    private int partitionLeaseSeconds = 600;
+    // 同一 partition 最多認領幾次 (含 lease 過期被接手)；FAILED 後第 n 次失敗要等 n * partitionRetryDelaySeconds 才可再認領
+    private int partitionMaxAttempts = 3;
+    private int partitionRetryDelaySeconds = 60;
+    private String runId;
+    private String nodeId;
+
+    // 每頁 commit 時一併寫 DATATRANSFER_CHECKPOINT，失敗後可用 --resume 從最後 commit 的位置接續
+    private boolean checkpointEnabled = true;
+
+    // 執行方式：AUTO / JAVA / PUSHDOWN
+    // AUTO 在 main 與 lookup 為同一資料庫同一 schema (且 FULL + INSERT) 時改用 INSERT ... SELECT 在 DB 內完成
+    private String executionMode = "AUTO";
+    private int pushDownParallel = 8;
+
+    // 進度 log 間隔 (秒)，0 表示不輸出
+    private int progressLogSeconds = 60;
+    // 結束時寫出指標的檔案 (.json 為 JSON，其他為 Prometheus text)，未設定則不寫
+    private String metricsFile;
+
+    // 各目標表收哪些 clna_nom_acct_type，未設定的表用預設分流
+    // (TRANSFERACCOUNT / FREQUENCYACCOUNT = 0、CUSTSETTRANSACCT = 1、NB_FREQUENCYACCOUNT_SK = 0,1)
+    private Map<String, List<String>> targetAcctTypes;
+    // NB_FREQUENCYACCOUNT_SK.is_appointed_account = 'Y' 的 clna_nom_acct_type
+    private List<String> appointedAcctTypes = List.of("0");
+    // FREQUENCYACCOUNT.seq_no 的 sequence 與每次預取的號碼數
+    private String frequencySeqName = "FREQUENCYACCOUNT_SEQ";
+    private int seqBlockSize = 1000;
+
+    // 批次寫入失敗時以二分法找出失敗的資料另存，其餘照常寫入：NONE (任一筆失敗即中止) / TABLE (DATATRANSFER_REJECT) / FILE
+    private String rejectMode = "NONE";
+    private String rejectFile;
+    // 整個 run 累計 reject 超過此筆數即中止，小於 0 表示不限制
+    private long maxRejects = 1000;
+
+    // 對帳修正 (--reconcile --repair) 時是否刪除目標表多出 (來源沒有) 的資料
+    private boolean reconcileDeleteExtra = false;
 
     // 來源表
     private String sourceTable = "BANCS_MIN_CLNA";
 
+    // 來源落地檔 (BANCS_MIN_CLNA 版面)，設定時改讀檔不讀來源表；partitionCount 即檔案切段數
+    private String sourceFile;
+    // FIXED (定長) / DELIMITED (分隔字元)
+    private String sourceFileFormat = "FIXED";
+    private String sourceFileDelimiter = "|";
+    // transfer_note 的編碼，其他欄位為 ASCII
+    private String sourceFileCharset = "UTF-8";
+
     // 目標表，支援多個（會自動覆蓋為 *_TEST 由 TestDataPreparator 控制）
     private List<String> targetTables;
 
@@ -29,9 +114,125 @@ public class DataTransferProperties {
     public int getPageSize() { return pageSize; }
     public void setPageSize(int pageSize) { this.pageSize = pageSize; }
 
+    public int getCommitInterval() { return commitInterval; }
+    public void setCommitInterval(int commitInterval) { this.commitInterval = commitInterval; }
+
+    public boolean isAdaptiveSizing() { return adaptiveSizing; }
+    public void setAdaptiveSizing(boolean adaptiveSizing) { this.adaptiveSizing = adaptiveSizing; }
+
+    public int getBatchSizeMin() { return batchSizeMin; }
+    public void setBatchSizeMin(int batchSizeMin) { this.batchSizeMin = batchSizeMin; }
+
+    public int getBatchSizeMax() { return batchSizeMax; }
+    public void setBatchSizeMax(int batchSizeMax) { this.batchSizeMax = batchSizeMax; }
+
+    public int getFetchSizeMin() { return fetchSizeMin; }
+    public void setFetchSizeMin(int fetchSizeMin) { this.fetchSizeMin = fetchSizeMin; }
+
+    public int getFetchSizeMax() { return fetchSizeMax; }
+    public void setFetchSizeMax(int fetchSizeMax) { this.fetchSizeMax = fetchSizeMax; }
+
+    public String getCustLookupMode() { return custLookupMode; }
+    public void setCustLookupMode(String custLookupMode) { this.custLookupMode = custLookupMode; }
+
+    public int getCustPreloadMaxRows() { return custPreloadMaxRows; }
+    public void setCustPreloadMaxRows(int custPreloadMaxRows) { this.custPreloadMaxRows = custPreloadMaxRows; }
+
+    public String getSyncMode() { return syncMode; }
+    public void setSyncMode(String syncMode) { this.syncMode = syncMode; }
+
+    public String getWriteMode() { return writeMode; }
+    public void setWriteMode(String writeMode) { this.writeMode = writeMode; }
+
+    public Map<String, List<String>> getMergeKeyColumns() { return mergeKeyColumns; }
+    public void setMergeKeyColumns(Map<String, List<String>> mergeKeyColumns) { this.mergeKeyColumns = mergeKeyColumns; }
+
+    public int getXrefCacheSize() { return xrefCacheSize; }
+    public void setXrefCacheSize(int xrefCacheSize) { this.xrefCacheSize = xrefCacheSize; }
+
+    public boolean isPipelineEnabled() { return pipelineEnabled; }
+    public void setPipelineEnabled(boolean pipelineEnabled) { this.pipelineEnabled = pipelineEnabled; }
+
+    public int getPipelineQueueDepth() { return pipelineQueueDepth; }
+    public void setPipelineQueueDepth(int pipelineQueueDepth) { this.pipelineQueueDepth = pipelineQueueDepth; }
+
+    public int getEnrichThreads() { return enrichThreads; }
+    public void setEnrichThreads(int enrichThreads) { this.enrichThreads = enrichThreads; }
+
+    public int getPartitionCount() { return partitionCount; }
+    public void setPartitionCount(int partitionCount) { this.partitionCount = partitionCount; }
+
+    public int getPartitionThreads() { return partitionThreads; }
+    public void setPartitionThreads(int partitionThreads) { this.partitionThreads = partitionThreads; }
+
+    public boolean isPartitionLeaseEnabled() { return partitionLeaseEnabled; }
+    public void setPartitionLeaseEnabled(boolean partitionLeaseEnabled) { this.partitionLeaseEnabled = partitionLeaseEnabled; }
+
+    public int getPartitionLeaseSeconds() { return partitionLeaseSeconds; }
+    public void setPartitionLeaseSeconds(int partitionLeaseSeconds) { this.partitionLeaseSeconds = partitionLeaseSeconds; }
+
+    public int getPartitionMaxAttempts() { return partitionMaxAttempts; }
+    public void setPartitionMaxAttempts(int partitionMaxAttempts) { this.partitionMaxAttempts = partitionMaxAttempts; }
+
+    public int getPartitionRetryDelaySeconds() { return partitionRetryDelaySeconds; }
+    public void setPartitionRetryDelaySeconds(int partitionRetryDelaySeconds) { this.partitionRetryDelaySeconds = partitionRetryDelaySeconds; }
+
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public boolean isCheckpointEnabled() { return checkpointEnabled; }
+    public void setCheckpointEnabled(boolean checkpointEnabled) { this.checkpointEnabled = checkpointEnabled; }
+
+    public String getExecutionMode() { return executionMode; }
+    public void setExecutionMode(String executionMode) { this.executionMode = executionMode; }
+
+    public int getPushDownParallel() { return pushDownParallel; }
+    public void setPushDownParallel(int pushDownParallel) { this.pushDownParallel = pushDownParallel; }
+
+    public int getProgressLogSeconds() { return progressLogSeconds; }
+    public void setProgressLogSeconds(int progressLogSeconds) { this.progressLogSeconds = progressLogSeconds; }
+
+    public String getMetricsFile() { return metricsFile; }
+    public void setMetricsFile(String metricsFile) { this.metricsFile = metricsFile; }
+
+    public Map<String, List<String>> getTargetAcctTypes() { return targetAcctTypes; }
+    public void setTargetAcctTypes(Map<String, List<String>> targetAcctTypes) { this.targetAcctTypes = targetAcctTypes; }
+
+    public List<String> getAppointedAcctTypes() { return appointedAcctTypes; }
+    public void setAppointedAcctTypes(List<String> appointedAcctTypes) { this.appointedAcctTypes = appointedAcctTypes; }
+
+    public String getFrequencySeqName() { return frequencySeqName; }
+    public void setFrequencySeqName(String frequencySeqName) { this.frequencySeqName = frequencySeqName; }
+
+    public int getSeqBlockSize() { return seqBlockSize; }
+    public void setSeqBlockSize(int seqBlockSize) { this.seqBlockSize = seqBlockSize; }
+    public String getRejectMode() { return rejectMode; }
+    public void setRejectMode(String rejectMode) { this.rejectMode = rejectMode; }
+    public String getRejectFile() { return rejectFile; }
+    public void setRejectFile(String rejectFile) { this.rejectFile = rejectFile; }
+    public long getMaxRejects() { return maxRejects; }
+    public void setMaxRejects(long maxRejects) { this.maxRejects = maxRejects; }
+    public boolean isReconcileDeleteExtra() { return reconcileDeleteExtra; }
+    public void setReconcileDeleteExtra(boolean reconcileDeleteExtra) { this.reconcileDeleteExtra = reconcileDeleteExtra; }
+
     public String getSourceTable() { return sourceTable; }
     public void setSourceTable(String sourceTable) { this.sourceTable = sourceTable; }
 
+    public String getSourceFile() { return sourceFile; }
+    public void setSourceFile(String sourceFile) { this.sourceFile = sourceFile; }
+
+    public String getSourceFileFormat() { return sourceFileFormat; }
+    public void setSourceFileFormat(String sourceFileFormat) { this.sourceFileFormat = sourceFileFormat; }
+
+    public String getSourceFileDelimiter() { return sourceFileDelimiter; }
+    public void setSourceFileDelimiter(String sourceFileDelimiter) { this.sourceFileDelimiter = sourceFileDelimiter; }
+
+    public String getSourceFileCharset() { return sourceFileCharset; }
+    public void setSourceFileCharset(String sourceFileCharset) { this.sourceFileCharset = sourceFileCharset; }
+
     public List<String> getTargetTables() { return targetTables; }
     public void setTargetTables(List<String> targetTables) { this.targetTables = targetTables; }
 
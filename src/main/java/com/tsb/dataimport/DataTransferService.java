@@ -5,9 +5,28 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import com.tsb.utils.NotificationService;
+
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class DataTransferService {
@@ -17,130 +36,783 @@ public class DataTransferService {
     private final DataSource mainDs;
     private final DataSource lookupDs;
     private final DataTransferProperties props;
+    private final WatermarkStore watermarks;
+    private final CheckpointStore checkpoints;
+    private final TransferMetrics metrics;
+    private final NotificationService notifications;
 
     public DataTransferService(@Qualifier("mainDataSource") DataSource mainDs,
                                @Qualifier("lookupDataSource") DataSource lookupDs,
-                               DataTransferProperties props) {
+                               DataTransferProperties props,
+                               TransferMetrics metrics,
+                               NotificationService notifications) {
         this.mainDs = mainDs;
         this.lookupDs = lookupDs;
         this.props = props;
+        this.metrics = metrics;
+        this.notifications = notifications;
+        this.watermarks = new WatermarkStore(mainDs);
+        this.checkpoints = new CheckpointStore(mainDs);
     }
 
     public void runAll() {
+        runAll(false);
+    }
+
+    /**
+     * @param resume true 時從 DATATRANSFER_CHECKPOINT 接續同一個 runId 上次中斷的位置，
+     *               false 時清掉該 runId 的舊 checkpoint 從頭開始
+     */
+    public void runAll(boolean resume) {
         List<String> targetTables = props.getTargetTables();
         if (targetTables == null || targetTables.isEmpty()) {
             logger.warn("No target tables configured for data transfer.");
             return;
         }
         int pageSize = resolvePageSize();
-        logger.info("Starting DataTransferService.runAll with targetTables={} pageSize={}", targetTables, pageSize);
-
-        int offset = 0;
-        boolean more = true;
-        int processed = 0;
-
-        // 分頁查詢
-        String pageSql = "SELECT clna_cust_id_no, clna_bsb_no, clna_acct_no, clna_nom_acct_type, clna_last_maint_date, transfer_note " +
-            "FROM (SELECT a.*, ROW_NUMBER() OVER (ORDER BY clna_cust_id_no, clna_bsb_no, clna_acct_no) rn FROM BANCS_MIN_CLNA a) " +
-            "WHERE rn > ? AND rn <= ?";
-
-        while (more) {
-            try (
-                Connection mainConn = mainDs.getConnection();
-                Connection lookupConn = lookupDs.getConnection();
-                PreparedStatement srcStmt = mainConn.prepareStatement(pageSql)
-            ) {
-                srcStmt.setInt(1, offset);
-                srcStmt.setInt(2, offset + pageSize);
-                int rowCount = 0;
-
-                try (ResultSet rs = srcStmt.executeQuery();
-                     PreparedStatement psTransfer = mainConn.prepareStatement(
-                         "INSERT INTO " + getTargetName("TRANSFERACCOUNT") +
-                         " (userid, brchid, accountno, updatedate, memo, email, receivermemo, synchancode) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
-                     PreparedStatement psCustSet = mainConn.prepareStatement(
-                         "INSERT INTO " + getTargetName("CUSTSETTRANSACCT") +
-                         " (userid, useridtype, brchid, accountno, updatedate, memo, email, receivermemo) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")
-                ) {
-                    while (rs.next()) {
-                        rowCount++;
-                        processed++;
-                        String clna_cust_id_no = trim(rs.getString("clna_cust_id_no"));
-                        String clna_bsb_no = trim(rs.getString("clna_bsb_no"));
-                        String clna_acct_no = trim(rs.getString("clna_acct_no"));
-                        String clna_nom_acct_type = trim(rs.getString("clna_nom_acct_type"));
-                        String clna_last_maint_date = trim(rs.getString("clna_last_maint_date"));
-                        String transfer_note = trim(rs.getString("transfer_note"));
-
-                        // lookup BANCS_SK_CUST_INFO
-                        String ts_cust_id = null;
-                        String cust_id_type = null;
-                        try (PreparedStatement lookupStmt = lookupConn.prepareStatement(
-                                "SELECT ts_cust_id, cust_id_type FROM BANCS_SK_CUST_INFO WHERE sk_cust_id = ?")) {
-                            lookupStmt.setString(1, clna_cust_id_no);
-                            try (ResultSet lrs = lookupStmt.executeQuery()) {
-                                if (lrs.next()) {
-                                    ts_cust_id = trim(lrs.getString("ts_cust_id"));
-                                    cust_id_type = trim(lrs.getString("cust_id_type"));
+        int partitionCount = Math.max(1, props.getPartitionCount());
+        boolean delta = isDeltaMode();
+        logger.info("Starting DataTransferService.runAll with targetTables={} pageSize={} pipeline={} partitions={} syncMode={} runId={} resume={}",
+            targetTables, pageSize, props.isPipelineEnabled(), partitionCount, delta ? "DELTA" : "FULL", resolveRunId(), resume);
+        // lease 的狀態以 runId 區分，用預設的當天日期時同一天第二次執行會看到全部 DONE 而什麼都不做
+        if (partitionCount > 1 && props.isPartitionLeaseEnabled() && (props.getRunId() == null || props.getRunId().isBlank())) {
+            throw new IllegalStateException("partitionLeaseEnabled requires an explicit datatransfer.run-id shared by all nodes of the run");
+        }
+        // delta 會再選到上次轉過、之後有異動的資料，直接 INSERT 會在目標表多出一筆
+        if (delta && resolveWriteMode() == TransferWriter.WriteMode.INSERT) {
+            throw new IllegalStateException("syncMode=DELTA re-reads changed rows, use writeMode=UPSERT (or MERGE) instead of INSERT");
+        }
+        if (isFileSource()) {
+            if (delta) {
+                throw new IllegalStateException("syncMode=DELTA needs the source table (issync / watermark), not supported with sourceFile");
+            }
+            logger.info("Reading source file {} ({}) in {} chunk(s)", props.getSourceFile(), resolveFileFormat(), partitionCount);
+        }
+
+        long start = System.currentTimeMillis();
+        PushDownTransferEngine pushDown = resolvePushDown(delta, resume);
+        logger.info("Execution engine: {} (executionMode={})", pushDown != null ? "PUSHDOWN (set-based, no per-page progress)" : "JAVA",
+            props.getExecutionMode() == null ? "AUTO" : props.getExecutionMode());
+        if (pushDown != null) {
+            Map<String, Long> written = runPushDown(pushDown, partitionCount);
+            long elapsed = System.currentTimeMillis() - start;
+            logger.info("DataTransfer finished (push-down): written={} elapsed={}ms", written, elapsed);
+            StringBuilder stats = new StringBuilder()
+                .append("runId: ").append(resolveRunId()).append('\n')
+                .append("engine: PUSHDOWN (parallel=").append(props.getPushDownParallel()).append(")\n");
+            written.forEach((table, rows) -> stats.append("written ").append(table).append(": ").append(rows).append('\n'));
+            stats.append("elapsed: ").append(formatElapsed(elapsed)).append('\n');
+            notifications.runFinished("Finished (push-down) in " + formatElapsed(elapsed), stats.toString());
+            return;
+        }
+        if (resolveWriteMode() != TransferWriter.WriteMode.INSERT) {
+            checkMergeKeyIndexes();
+        }
+        XrefCache xrefCache = new XrefCache(props.getXrefCacheSize());
+        List<SliceResult> results;
+        try (
+            Connection lookupConn = lookupDs.getConnection();
+            CustInfoLookup custLookup = openCustInfoLookup(lookupConn);
+            RejectStore rejects = openRejectStore()
+        ) {
+            logger.info("Customer lookup: {}", custLookup.describe());
+            // lease 模式的 checkpoint 由各 node 共用，不在這裡清
+            if (!resume && props.isCheckpointEnabled() && !(partitionCount > 1 && props.isPartitionLeaseEnabled())) {
+                checkpoints.clear(resolveRunId());
+            }
+            SourceFilter baseFilter = SourceFilter.none();
+            if (delta) {
+                String watermark = watermarks.load(props.getSourceTable());
+                baseFilter = SourceFilter.delta(watermark);
+                logger.info("Delta sync from watermark clna_last_maint_date >= {} (plus issync='N')", watermark);
+            }
+            // progressLogSeconds <= 0 時為 null
+            ProgressReporter progress = openProgressReporter(baseFilter);
+            try {
+                if (partitionCount == 1) {
+                    results = List.of(transferSlice("all", 0, 1, baseFilter, custLookup, xrefCache, rejects, resume, PageListener.NONE));
+                } else {
+                    results = runPartitions(partitionCount, baseFilter, custLookup, xrefCache, rejects, resume);
+                }
+            } finally {
+                if (progress != null) progress.close();
+            }
+            if (delta) {
+                String newWatermark = maxLastMaintDate(results);
+                watermarks.advance(props.getSourceTable(), newWatermark);
+                logger.info("Delta watermark advanced to {}", newWatermark);
+            }
+            logger.info("Customer lookup stats: hits={} misses={}", custLookup.hits(), custLookup.misses());
+            logger.info("XREF stats: {}", xrefCache.describe());
+            if (rejects.enabled()) {
+                logger.info("Rejected rows ({}): {}", props.getRejectMode(), rejects.rejected());
+            }
+        } catch (SQLException e) {
+            logger.error("Error during data transfer: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long processed = 0, noCustomer = 0, skipped = 0, rejected = 0, syncFlagged = 0;
+        Map<String, Long> written = new LinkedHashMap<>();
+        for (SliceResult r : results) {
+            processed += r.rowsRead;
+            noCustomer += r.noCustomerRows;
+            skipped += r.skippedRows;
+            rejected += r.rejectedRows;
+            syncFlagged += r.syncFlagged;
+            r.rowsByTable.forEach((table, rows) -> written.merge(table, rows, Long::sum));
+        }
+        logger.info("Rows written ({}): {} skipped={} rejected={} noCustomer={} syncFlagged={}",
+            resolveWriteMode(), written, skipped, rejected, noCustomer, syncFlagged);
+        long elapsed = System.currentTimeMillis() - start;
+        long rate = elapsed <= 0 ? processed : processed * 1000 / elapsed;
+        logger.info("DataTransfer finished: processed={} elapsed={}ms", processed, elapsed);
+
+        if (rejected > 0) {
+            notifications.warning(rejected + " rows rejected (rejectMode=" + props.getRejectMode() + ")");
+        }
+        StringBuilder stats = new StringBuilder()
+            .append("runId: ").append(resolveRunId()).append('\n')
+            .append("syncMode: ").append(delta ? "DELTA" : "FULL").append(", writeMode: ").append(resolveWriteMode()).append('\n')
+            .append("source rows read: ").append(processed).append('\n');
+        written.forEach((table, rows) -> stats.append("written ").append(table).append(": ").append(rows).append('\n'));
+        stats.append("skipped: ").append(skipped).append('\n')
+            .append("rejected: ").append(rejected).append('\n')
+            .append("no customer: ").append(noCustomer).append('\n')
+            .append("issync flagged: ").append(syncFlagged).append('\n')
+            .append("elapsed: ").append(formatElapsed(elapsed)).append('\n')
+            .append("time to first row: ").append(metrics.firstRowMillis()).append("ms after JVM start\n")
+            .append("throughput: ").append(rate).append(" rows/s\n");
+        notifications.runFinished((rejected > 0 ? "Finished with " + rejected + " rejects: " : "Finished: ")
+            + processed + " rows in " + formatElapsed(elapsed), stats.toString());
+    }
+
+    private static String formatElapsed(long ms) {
+        long s = ms / 1000;
+        return String.format("%d:%02d:%02d", s / 3600, s / 60 % 60, s % 60);
+    }
+
+    /**
+     * 以 ORA_HASH(clna_cust_id_no) 把來源切成 partitionCount 份，在 partitionThreads 條執行緒上同時跑，
+     * 每份各自的連線、各自 commit。啟用 lease 時 partition 由 DATATRANSFER_PARTITION_LEASE 分派，
+     * 可由多台 JVM 同時處理同一個 run。
+     */
+    private List<SliceResult> runPartitions(int partitionCount, SourceFilter baseFilter, CustInfoLookup custLookup,
+                                            XrefCache xrefCache, RejectStore rejects, boolean resume) throws SQLException {
+        int threads = Math.max(1, Math.min(props.getPartitionThreads(), partitionCount));
+        PartitionLeaseManager leases = null;
+        if (props.isPartitionLeaseEnabled()) {
+            leases = new PartitionLeaseManager(mainDs, resolveRunId(), resolveNodeId(), props.getPartitionLeaseSeconds(),
+                props.getPartitionMaxAttempts(), props.getPartitionRetryDelaySeconds());
+            leases.init(partitionCount);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<SliceResult>>> futures = new ArrayList<>();
+        try {
+            if (leases == null) {
+                for (int p = 0; p < partitionCount; p++) {
+                    int partitionNo = p;
+                    futures.add(pool.submit(() -> List.of(
+                        transferPartition(partitionNo, partitionCount, baseFilter, custLookup, xrefCache, rejects, resume, PageListener.NONE))));
+                }
+            } else {
+                PartitionLeaseManager lm = leases;
+                for (int t = 0; t < threads; t++) {
+                    futures.add(pool.submit(() -> {
+                        List<SliceResult> mine = new ArrayList<>();
+                        Integer partitionNo;
+                        while ((partitionNo = lm.claim()) != null) {
+                            int p = partitionNo;
+                            long renewEveryMs = lm.leaseSeconds() * 1000L / 3;
+                            long[] lastRenew = { System.currentTimeMillis() };
+                            PageListener renew = rowsRead -> {
+                                long now = System.currentTimeMillis();
+                                if (now - lastRenew[0] >= renewEveryMs) {
+                                    lm.renew(p, rowsRead);
+                                    lastRenew[0] = now;
                                 }
+                            };
+                            try {
+                                // 接手其他 node 留下的 partition 時一律從 checkpoint 接續
+                                SliceResult r = transferPartition(p, partitionCount, baseFilter, custLookup, xrefCache, rejects, true, renew);
+                                lm.complete(p, r.rowsRead);
+                                mine.add(r);
+                            } catch (SQLException | RuntimeException e) {
+                                lm.fail(p);
+                                throw e;
                             }
                         }
-                        if (ts_cust_id == null) continue;
-
-                        // XREF 處理
-                        String bsbUsed = clna_bsb_no;
-                        String acctUsed = clna_acct_no;
-                        if ("103".equals(clna_bsb_no)) {
-                            try (PreparedStatement xrefStmt = mainConn.prepareStatement(
-                                    "SELECT intn_ref_no FROM XREF WHERE extn_ref_no = ?")) {
-                                xrefStmt.setString(1, clna_acct_no);
-                                try (ResultSet xrs = xrefStmt.executeQuery()) {
-                                    if (xrs.next()) {
-                                        String intn = trim(xrs.getString("intn_ref_no"));
-                                        if (intn != null) {
-                                            acctUsed = intn;
-                                            bsbUsed = "812";
-                                        }
-                                    }
-                                }
-                            }
+                        return mine;
+                    }));
+                }
+            }
+
+            List<SliceResult> results = new ArrayList<>();
+            for (Future<List<SliceResult>> f : futures) {
+                try {
+                    results.addAll(f.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SQLException) throw (SQLException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new IllegalStateException("Partition transfer failed", cause);
+                }
+            }
+            for (SliceResult r : results) {
+                logger.info("Partition result {}", r);
+            }
+            if (leases != null) leases.checkFinished();
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Partition transfer interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private SliceResult transferPartition(int partitionNo, int partitionCount, SourceFilter baseFilter,
+                                          CustInfoLookup custLookup, XrefCache xrefCache, RejectStore rejects,
+                                          boolean resume, PageListener listener) throws SQLException {
+        SliceResult r = transferSlice("partition " + partitionNo + "/" + partitionCount, partitionNo, partitionCount,
+            SourceFilter.partition(partitionNo, partitionCount).and(baseFilter), custLookup, xrefCache, rejects, resume, listener);
+        logger.info("Partition {}/{} done: {}", partitionNo, partitionCount, r);
+        return r;
+    }
+
+    /**
+     * 轉一個來源切片：自己開 main 連線 (讀 + 寫)，enricher 另開連線，逐頁 commit。
+     * delta 模式下 issync 回寫、以及每頁的 checkpoint 都與目標表寫入在同一個 transaction。
+     *
+     * @param resume 是否從 DATATRANSFER_CHECKPOINT 接續 (已 DONE 的切片直接略過)
+     */
+    private SliceResult transferSlice(String name, int partitionNo, int partitionCount, SourceFilter filter,
+                                      CustInfoLookup custLookup, XrefCache xrefCache, RejectStore rejects,
+                                      boolean resume, PageListener listener) throws SQLException {
+        long start = System.currentTimeMillis();
+        String runId = resolveRunId();
+        CheckpointStore.Checkpoint cp = resume && props.isCheckpointEnabled() ? checkpoints.load(runId, partitionNo) : null;
+        if (cp != null) {
+            if (cp.partitionCount != partitionCount) {
+                throw new IllegalStateException("Checkpoint of run " + runId + " was written with partitionCount="
+                    + cp.partitionCount + ", resume with the same partition count (current " + partitionCount + ")");
+            }
+            if (cp.done) {
+                logger.info("{} of run {} already done, skipped: {}", name, runId, cp);
+                return new SliceResult(name + " (done)", 0, checkpointRowsByTable(cp), 0, 0, 0, 0, 0, null);
+            }
+            logger.info("Resuming {} of run {} after checkpoint {}", name, runId, cp);
+        }
+        long baseRead = cp == null ? 0 : cp.rowsRead;
+        long[] baseRows = cp == null ? null : cp.targetRows;
+
+        long processed = 0;
+        boolean pipelined = props.isPipelineEnabled();
+        ClnaSource reader = null;
+        try (
+            Connection mainConn = mainDs.getConnection();
+            RejectStore.Writer rejectWriter = rejects.open(mainConn, name);
+            TransferWriter writer = openWriter(mainConn, name, rejectWriter);
+            SyncFlagUpdater flagger = isDeltaMode() ? new SyncFlagUpdater(mainConn, props.getSourceTable()) : null;
+            CheckpointStore.Writer checkpoint = props.isCheckpointEnabled()
+                ? checkpoints.open(mainConn, runId, partitionNo, partitionCount) : null;
+            Connection readConn = pipelined && !isFileSource() ? mainDs.getConnection() : null
+        ) {
+            mainConn.setAutoCommit(false);
+            // pipeline 模式 reader 另開連線，writer 用 mainConn，enricher 各自開連線
+            reader = openSource(readConn != null ? readConn : mainConn, filter, partitionNo, partitionCount, name);
+            if (cp != null) {
+                reader.resumeAfter(cp);
+            }
+
+            CommitPolicy commitPolicy = new CommitPolicy(props.getCommitInterval());
+            long[] readSoFar = { 0 };
+            // 最後一筆的鍵值另存，row 物件寫完後會交回 reader 重複使用
+            String[] lastKey = { null, null, null };
+            PageSink sink = page -> {
+                writer.write(page);
+                if (flagger != null) flagger.flag(page);
+                readSoFar[0] += page.size();
+                ClnaRow last = page.get(page.size() - 1);
+                lastKey[0] = last.keyCustId;
+                lastKey[1] = last.keyBsbNo;
+                lastKey[2] = last.keyAcctNo;
+                if (checkpoint != null) {
+                    checkpoint.save(last, baseRead + readSoFar[0], writer.rowsByTarget(baseRows));
+                }
+            };
+            try {
+                if (pipelined) {
+                    TransferPipeline pipeline = new TransferPipeline(props.getPipelineQueueDepth(), props.getEnrichThreads(), metrics);
+                    processed = pipeline.run(reader, () -> openEnricher(custLookup, xrefCache), sink, mainConn,
+                        commitPolicy, listener);
+                } else {
+                    try (Enricher enricher = openEnricher(custLookup, xrefCache)) {
+                        List<ClnaRow> page;
+                        while (!(page = reader.nextPage()).isEmpty()) {
+                            enricher.enrich(page);
+                            sink.write(page);
+                            if (commitPolicy.pageWritten(page.size())) metrics.commit(mainConn);
+                            processed += page.size();
+                            reader.recycle(page);
+                            listener.pageCommitted(processed);
                         }
+                        metrics.commit(mainConn);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+
+            if (checkpoint != null) {
+                boolean any = readSoFar[0] > 0;
+                checkpoint.markDone(
+                    any ? lastKey[0] : cp != null ? cp.lastCustId : null,
+                    any ? lastKey[1] : cp != null ? cp.lastBsbNo : null,
+                    any ? lastKey[2] : cp != null ? cp.lastAcctNo : null,
+                    baseRead + processed, writer.rowsByTarget(baseRows));
+                metrics.commit(mainConn);
+            }
+            if (props.isAdaptiveSizing()) {
+                logger.info("{} settled at batchSize={} fetchSize={}", name, writer.batchSizer().current(), reader.fetchSizer().current());
+            }
+            return new SliceResult(name, processed, writer.rowsByTable(baseRows),
+                writer.noCustomerRows(), writer.skippedRows(), writer.rejectedRows(), System.currentTimeMillis() - start,
+                flagger == null ? 0 : flagger.flagged(), reader.maxLastMaintDate());
+        } catch (SQLException e) {
+            logger.error("Error in {} near key {}: {}", name, reader == null ? "-" : reader.lastKey(), e.getMessage());
+            throw e;
+        }
+    }
 
-                        if ("0".equals(clna_nom_acct_type) && targetTables.contains(getTargetName("TRANSFERACCOUNT"))) {
-                            psTransfer.setString(1, ts_cust_id);
-                            psTransfer.setString(2, bsbUsed);
-                            psTransfer.setString(3, acctUsed);
-                            psTransfer.setString(4, clna_last_maint_date);
-                            psTransfer.setString(5, transfer_note);
-                            psTransfer.setNull(6, Types.VARCHAR);
-                            psTransfer.setNull(7, Types.VARCHAR);
-                            psTransfer.setString(8, "RB");
-                            psTransfer.addBatch();
-                        } else if ("1".equals(clna_nom_acct_type) && targetTables.contains(getTargetName("CUSTSETTRANSACCT"))) {
-                            psCustSet.setString(1, ts_cust_id);
-                            psCustSet.setString(2, cust_id_type);
-                            psCustSet.setString(3, bsbUsed);
-                            psCustSet.setString(4, acctUsed);
-                            psCustSet.setString(5, clna_last_maint_date);
-                            psCustSet.setString(6, transfer_note);
-                            psCustSet.setNull(7, Types.VARCHAR);
-                            psCustSet.setNull(8, Types.VARCHAR);
-                            psCustSet.addBatch();
+    /**
+     * executionMode：JAVA = 一律逐頁處理；PUSHDOWN = 一律 set-based；
+     * AUTO = 兩個 DataSource 為同一資料庫同一 schema、且為 FULL + INSERT 時才用 set-based。
+     *
+     * @return 不使用 push-down 時回傳 null
+     */
+    private PushDownTransferEngine resolvePushDown(boolean delta, boolean resume) {
+        String mode = props.getExecutionMode() == null ? "AUTO" : props.getExecutionMode().trim().toUpperCase();
+        if ("JAVA".equals(mode)) return null;
+        boolean forced = "PUSHDOWN".equals(mode);
+        // push-down 一次寫完，不能從逐頁的 checkpoint 接續；resume 一律走 Java 路徑 (push-down 完成的 run 已全部 DONE)
+        if (resume) {
+            if (forced) throw new IllegalStateException("Push-down cannot resume from a checkpoint, use executionMode=JAVA");
+            return null;
+        }
+        // lease 模式多個 node 共用 checkpoint，每個 node 都 push-down 會重複寫入
+        if (props.isPartitionLeaseEnabled() && props.getPartitionCount() > 1) {
+            if (forced) throw new IllegalStateException("Push-down cannot be combined with partitionLeaseEnabled");
+            return null;
+        }
+        if (isFileSource()) {
+            if (forced) throw new IllegalStateException("Push-down cannot read from sourceFile");
+            return null;
+        }
+
+        if (delta || resolveWriteMode() != TransferWriter.WriteMode.INSERT) {
+            if (forced) {
+                throw new IllegalStateException("Push-down supports syncMode=FULL with writeMode=INSERT only");
+            }
+            return null;
+        }
+        // 一條 INSERT ... SELECT 無法逐筆隔離失敗的資料
+        if (props.getRejectMode() != null && !props.getRejectMode().isBlank() && !"NONE".equalsIgnoreCase(props.getRejectMode().trim())) {
+            if (forced) throw new IllegalStateException("Push-down does not support rejectMode=" + props.getRejectMode());
+            return null;
+        }
+        // set-based SQL 只處理 TRANSFERACCOUNT / CUSTSETTRANSACCT 的預設分流
+        boolean otherTargets = props.getTargetTables().contains(getTargetName(TargetTable.FREQUENCYACCOUNT.name()))
+            || props.getTargetTables().contains(getTargetName(TargetTable.NB_FREQUENCYACCOUNT_SK.name()));
+        if (otherTargets || (props.getTargetAcctTypes() != null && !props.getTargetAcctTypes().isEmpty())) {
+            if (forced) {
+                throw new IllegalStateException("Push-down supports TRANSFERACCOUNT / CUSTSETTRANSACCT with default routing only");
+            }
+            return null;
+        }
+        String[] main;
+        String[] lookup;
+        try {
+            main = PushDownTransferEngine.identify(mainDs);
+            lookup = PushDownTransferEngine.identify(lookupDs);
+        } catch (SQLException e) {
+            if (forced) throw new RuntimeException(e);
+            logger.info("Cannot identify databases for push-down ({}), using Java path", e.getMessage());
+            return null;
+        }
+        boolean sameDb = main[0] != null && main[0].equals(lookup[0]) && main[1] != null && main[1].equals(lookup[1]);
+        if (!sameDb) {
+            if (forced) {
+                throw new IllegalStateException("Push-down requires main and lookup DataSource on the same database");
+            }
+            return null;
+        }
+        // 同 DB 不同 schema 時需以 schema 前綴存取 lookup 表 (需有權限)，AUTO 不冒這個險
+        String lookupSchema = lookup[2] != null && !lookup[2].equals(main[2]) ? lookup[2] : null;
+        if (lookupSchema != null && !forced) return null;
+        return new PushDownTransferEngine(props.getSourceTable(), lookupSchema, props.getPushDownParallel());
+    }
+
+    /**
+     * 對帳：依轉檔規則比對來源與 TRANSFERACCOUNT / CUSTSETTRANSACCT，差異寫入 DATATRANSFER_RECON_DIFF；
+     * repair 為 true 時再依差異做最小修正。應有的資料以 push-down 的 SQL 規則產生 (檢查的是 SQL 規則，
+     * 不是 Java 轉檔路徑實際寫入的邏輯)，main 與 lookup 需在同一個資料庫；分開部署 (一般 JAVA 模式) 時無法對帳。
+     */
+    public void reconcile(boolean repair) {
+        if (props.getTargetTables() == null || props.getTargetTables().isEmpty()) {
+            logger.warn("No target tables configured for reconcile.");
+            return;
+        }
+        if (isFileSource()) {
+            throw new IllegalStateException("Reconcile compares against sourceTable, not supported with sourceFile");
+        }
+        String[] main;
+        String[] lookup;
+        try {
+            main = PushDownTransferEngine.identify(mainDs);
+            lookup = PushDownTransferEngine.identify(lookupDs);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        if (main[0] == null || !main[0].equals(lookup[0]) || main[1] == null || !main[1].equals(lookup[1])) {
+            throw new IllegalStateException("Reconcile builds the expected rows with the push-down SQL and requires main and lookup"
+                + " DataSource on the same database (main " + main[0] + "/" + main[1] + ", lookup " + lookup[0] + "/" + lookup[1] + ")");
+        }
+        String lookupSchema = lookup[2] != null && !lookup[2].equals(main[2]) ? lookup[2] : null;
+        Reconciler reconciler = new Reconciler(
+            new PushDownTransferEngine(props.getSourceTable(), lookupSchema, props.getPushDownParallel()),
+            resolveRunId(), resolveFetchSize());
+
+        logger.info("Reconciling {} against {} (runId={} repair={})", props.getTargetTables(), props.getSourceTable(),
+            resolveRunId(), repair);
+        try (Connection conn = mainDs.getConnection()) {
+            for (TargetTable target : TargetTable.values()) {
+                String table = getTargetName(target.name());
+                if (!props.getTargetTables().contains(table)) continue;
+                if (target != TargetTable.TRANSFERACCOUNT && target != TargetTable.CUSTSETTRANSACCT) {
+                    logger.warn("Reconcile supports TRANSFERACCOUNT / CUSTSETTRANSACCT only, {} skipped", table);
+                    continue;
+                }
+                String[] keys = mergeKeys(target.name());
+                Set<String> acctTypes = acctTypes(target);
+                Reconciler.Result r = reconciler.compare(conn, target, table, keys, acctTypes);
+                logger.info("Reconcile {}", r);
+                if (repair && r.hasDiff()) {
+                    reconciler.repair(conn, target, table, keys, acctTypes, props.isReconcileDeleteExtra());
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error during reconcile: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * set-based 轉檔與 checkpoint 在同一個 transaction：完成後每個 partition 都記為 DONE
+     * (筆數記在 partition 0)，之後同一個 runId 以 --resume 重跑時不會重複寫入。
+     *
+     * @return 各目標表 (實際表名) 寫入筆數
+     */
+    private Map<String, Long> runPushDown(PushDownTransferEngine engine, int partitionCount) {
+        List<String> targetTables = props.getTargetTables();
+        String transferTable = getTargetName("TRANSFERACCOUNT");
+        String custSetTable = getTargetName("CUSTSETTRANSACCT");
+        String runId = resolveRunId();
+        logger.info("Using set-based push-down (parallel={})", props.getPushDownParallel());
+        try (Connection conn = mainDs.getConnection()) {
+            if (props.isCheckpointEnabled()) checkpoints.clear(runId);
+            long[] rows;
+            try {
+                rows = engine.run(conn,
+                    targetTables.contains(transferTable) ? transferTable : null,
+                    targetTables.contains(custSetTable) ? custSetTable : null, metrics);
+                if (props.isCheckpointEnabled()) {
+                    for (int p = 0; p < partitionCount; p++) {
+                        try (CheckpointStore.Writer checkpoint = checkpoints.open(conn, runId, p, partitionCount)) {
+                            // push-down 不逐筆讀來源，rows_read 記 0
+                            checkpoint.markDone(null, null, null, 0, p == 0 ? rows : new long[rows.length]);
                         }
-                    } // end while rs
+                    }
+                }
+                metrics.commit(conn);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                engine.resetSession(conn);
+            }
+            Map<String, Long> written = new LinkedHashMap<>();
+            for (TargetTable target : TargetTable.values()) {
+                String table = getTargetName(target.name());
+                if (targetTables.contains(table)) written.put(table, rows[target.ordinal()]);
+            }
+            return written;
+        } catch (SQLException e) {
+            logger.error("Error during push-down transfer: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 設定 sourceFile 時讀落地檔的第 partitionNo 段 (partition 即檔案切段)，否則以 keyset 分頁讀來源表。
+     */
+    private ClnaSource openSource(Connection conn, SourceFilter filter, int partitionNo, int partitionCount,
+                                  String sliceName) throws SQLException {
+        if (isFileSource()) {
+            try {
+                return FlatFileSource.open(Paths.get(props.getSourceFile()), resolveFileFormat(),
+                    resolveFileDelimiter(), Charset.forName(props.getSourceFileCharset()),
+                    partitionNo, partitionCount, resolvePageSize(), metrics);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open source file " + props.getSourceFile(), e);
+            }
+        }
+        return new ClnaPageReader(conn, props.getSourceTable(), filter, resolvePageSize(), props.isAdaptiveSizing()
+                ? AdaptiveSizer.adaptive(sliceName + " fetchSize", resolveFetchSize(), props.getFetchSizeMin(), props.getFetchSizeMax())
+                : AdaptiveSizer.fixed(resolveFetchSize()),
+            metrics);
+    }
+
+    private boolean isFileSource() {
+        return props.getSourceFile() != null && !props.getSourceFile().isBlank();
+    }
+
+    private FlatFileSource.Format resolveFileFormat() {
+        String format = props.getSourceFileFormat();
+        return format == null || format.isBlank()
+            ? FlatFileSource.Format.FIXED : FlatFileSource.Format.valueOf(format.trim().toUpperCase());
+    }
+
+    private char resolveFileDelimiter() {
+        String d = props.getSourceFileDelimiter();
+        if (d == null || d.length() != 1 || d.charAt(0) > 0x7f) {
+            throw new IllegalStateException("sourceFileDelimiter must be a single ASCII character: " + d);
+        }
+        return d.charAt(0);
+    }
+
+    /** targetTables 中有設定的目標表各一個 route；INSERT 模式的 FREQUENCYACCOUNT 另配一個 sequence 區塊配號器 */
+    private TransferWriter openWriter(Connection conn, String sliceName, RejectStore.Writer rejects) throws SQLException {
+        List<TransferWriter.Route> routes = new ArrayList<>();
+        Set<String> appointed = new HashSet<>(props.getAppointedAcctTypes());
+        try {
+            for (TargetTable target : TargetTable.values()) {
+                String table = getTargetName(target.name());
+                if (!props.getTargetTables().contains(table)) continue;
+                String seqName = target.usesSequence() ? props.getFrequencySeqName() : null;
+                SeqBlockAllocator seq = seqName != null && resolveWriteMode() == TransferWriter.WriteMode.INSERT
+                    ? new SeqBlockAllocator(conn, seqName, props.getSeqBlockSize()) : null;
+                routes.add(new TransferWriter.Route(target, table, mergeKeys(target.name()), acctTypes(target),
+                    appointed, seqName, seq));
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (TransferWriter.Route r : routes) {
+                if (r.seq != null) r.seq.close();
+            }
+            throw e;
+        }
+        // writer 每頁結束都會送出 (頁會交回 reader 重複使用)，一批不可能超過一頁
+        int pageSize = resolvePageSize();
+        int batchMax = Math.min(props.getBatchSizeMax(), pageSize);
+        int batchSize = Math.min(resolveBatchSize(), pageSize);
+        return new TransferWriter(conn, resolveWriteMode(), routes,
+            props.isAdaptiveSizing()
+                ? AdaptiveSizer.adaptive(sliceName + " batchSize", batchSize, Math.min(props.getBatchSizeMin(), batchMax), batchMax)
+                : AdaptiveSizer.fixed(batchSize),
+            metrics, rejects);
+    }
+
+    /** rejectMode 未設定或 NONE 時不容錯 */
+    private RejectStore openRejectStore() throws IOException {
+        String mode = props.getRejectMode();
+        RejectStore.Mode m = mode == null || mode.isBlank()
+            ? RejectStore.Mode.NONE : RejectStore.Mode.valueOf(mode.trim().toUpperCase());
+        if (m == RejectStore.Mode.NONE) return RejectStore.none();
+        String file = props.getRejectFile();
+        return RejectStore.open(m, file == null || file.isBlank() ? null : Paths.get(file), resolveRunId(), props.getMaxRejects());
+    }
+
+    private TransferWriter.WriteMode resolveWriteMode() {
+        String mode = props.getWriteMode();
+        return mode == null || mode.isBlank()
+            ? TransferWriter.WriteMode.INSERT : TransferWriter.WriteMode.valueOf(mode.trim().toUpperCase());
+    }
+
+    /** 寫入該表的 clna_nom_acct_type，未設定時用 {@link TargetTable#defaultAcctTypes} */
+    private Set<String> acctTypes(TargetTable target) {
+        Map<String, List<String>> configured = props.getTargetAcctTypes();
+        if (configured != null) {
+            for (Map.Entry<String, List<String>> e : configured.entrySet()) {
+                if (e.getKey().equalsIgnoreCase(target.name()) && e.getValue() != null) {
+                    return new HashSet<>(e.getValue());
+                }
+            }
+        }
+        return new HashSet<>(Arrays.asList(target.defaultAcctTypes));
+    }
+
+    /**
+     * MERGE / UPSERT 每筆以 key 欄位比對目標表，沒有以 key 欄位開頭的索引時每筆都會 full scan，
+     * 啟動時檢查並提醒 (索引 DDL 見 TARGET_MERGE_KEY_INDEX.txt)。
+     */
+    private void checkMergeKeyIndexes() {
+        String sql = "SELECT index_name, column_name FROM USER_IND_COLUMNS WHERE table_name = ? ORDER BY index_name, column_position";
+        try (Connection conn = mainDs.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (TargetTable target : TargetTable.values()) {
+                String table = getTargetName(target.name());
+                if (!props.getTargetTables().contains(table)) continue;
+                Set<String> keys = new HashSet<>();
+                for (String k : mergeKeys(target.name())) keys.add(k.toUpperCase());
+                Map<String, List<String>> indexes = new LinkedHashMap<>();
+                ps.setString(1, table.toUpperCase());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        indexes.computeIfAbsent(rs.getString(1), i -> new ArrayList<>()).add(rs.getString(2));
+                    }
+                }
+                boolean covered = indexes.values().stream()
+                    .anyMatch(cols -> cols.size() >= keys.size() && new HashSet<>(cols.subList(0, keys.size())).equals(keys));
+                if (!covered) {
+                    logger.warn("{} has no index on merge keys {}, each {} row will scan the table (see TARGET_MERGE_KEY_INDEX.txt)",
+                        table, keys, resolveWriteMode());
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("Cannot check merge key indexes: {}", e.getMessage());
+        }
+    }
+
+    /** 已完成切片在 checkpoint 記錄的各目標表寫入筆數 (實際表名)，讓 resume 後的統計包含之前寫入的 */
+    private Map<String, Long> checkpointRowsByTable(CheckpointStore.Checkpoint cp) {
+        Map<String, Long> rows = new LinkedHashMap<>();
+        for (TargetTable target : TargetTable.values()) {
+            String table = getTargetName(target.name());
+            if (props.getTargetTables().contains(table)) rows.put(table, cp.targetRows[target.ordinal()]);
+        }
+        return rows;
+    }
 
-                    psTransfer.executeBatch();
-                    psCustSet.executeBatch();
-                    mainConn.commit();
+    /** MERGE / UPSERT 的 key 欄位，未設定時預設 (userid, brchid, accountno) */
+    private String[] mergeKeys(String baseName) {
+        Map<String, List<String>> configured = props.getMergeKeyColumns();
+        if (configured != null) {
+            for (Map.Entry<String, List<String>> e : configured.entrySet()) {
+                if (e.getKey().equalsIgnoreCase(baseName) && e.getValue() != null && !e.getValue().isEmpty()) {
+                    return e.getValue().toArray(new String[0]);
                 }
-                if (rowCount < pageSize) more = false;
-                offset += pageSize;
-            } catch (SQLException e) {
-                logger.error("Error during page offset {}: {}", offset, e.getMessage(), e);
-                throw new RuntimeException(e);
             }
         }
-        logger.info("DataTransfer finished: processed={}", processed);
+        return new String[] { "userid", "brchid", "accountno" };
+    }
+
+    /** 每個 enrich 執行緒一份：XREF 走自己的 main 連線，批次查客戶時另開 lookup 連線 */
+    private Enricher openEnricher(CustInfoLookup custLookup, XrefCache xrefCache) throws SQLException {
+        Connection xrefConn = mainDs.getConnection();
+        Connection lookupConn = null;
+        try {
+            CustInfoLookup lookup = custLookup;
+            if (custLookup.usesConnection()) {
+                lookupConn = lookupDs.getConnection();
+                lookup = custLookup.forConnection(lookupConn);
+            }
+            return new Enricher(lookup, new XrefResolver(xrefConn, xrefCache), metrics, xrefConn, lookupConn);
+        } catch (SQLException | RuntimeException e) {
+            xrefConn.close();
+            if (lookupConn != null) lookupConn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * progressLogSeconds > 0 時定時輸出進度；先以 COUNT(*) 算出本次要處理的來源筆數供估算 ETA
+     * (讀檔時以檔案大小估算)。
+     */
+    private ProgressReporter openProgressReporter(SourceFilter filter) throws SQLException {
+        int interval = props.getProgressLogSeconds();
+        if (interval <= 0) return null;
+        long expected;
+        if (isFileSource()) {
+            try {
+                expected = FlatFileSource.estimateRecords(Paths.get(props.getSourceFile()), resolveFileFormat());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            logger.info("Source records to process (estimated): {}", expected);
+            return new ProgressReporter(metrics, expected, interval, notifications::progress);
+        }
+        try (Connection conn = mainDs.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM " + props.getSourceTable()
+                 + (filter.isEmpty() ? "" : " WHERE " + filter.sql()))) {
+            filter.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                expected = rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+        logger.info("Source rows to process: {}", expected);
+        return new ProgressReporter(metrics, expected, interval, notifications::progress);
+    }
+
+    /**
+     * 依 custLookupMode 建立 BANCS_SK_CUST_INFO 查詢：AUTO 時筆數不超過 custPreloadMaxRows 才預載。
+     */
+    private CustInfoLookup openCustInfoLookup(Connection lookupConn) throws SQLException {
+        String mode = props.getCustLookupMode() == null ? "AUTO" : props.getCustLookupMode().toUpperCase();
+        int maxRows = props.getCustPreloadMaxRows();
+        if ("BATCH".equals(mode)) {
+            return new BatchedCustInfoLookup(lookupConn);
+        }
+        long count;
+        try (Statement st = lookupConn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM BANCS_SK_CUST_INFO")) {
+            count = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (count > maxRows) {
+            if ("PRELOAD".equals(mode)) {
+                throw new IllegalStateException("BANCS_SK_CUST_INFO has " + count + " rows, exceeds custPreloadMaxRows=" + maxRows);
+            }
+            logger.info("BANCS_SK_CUST_INFO has {} rows (> {}), using batched lookup", count, maxRows);
+            return new BatchedCustInfoLookup(lookupConn);
+        }
+        // 預留一點空間給載入期間新增的資料
+        int expected = (int) (count + count / 20 + 16);
+        return PreloadedCustInfoLookup.load(lookupConn, expected, resolveFetchSize());
+    }
+
+    private boolean isDeltaMode() {
+        return "DELTA".equalsIgnoreCase(props.getSyncMode());
+    }
+
+    private static String maxLastMaintDate(List<SliceResult> results) {
+        String max = null;
+        for (SliceResult r : results) {
+            if (r.maxLastMaintDate != null && (max == null || r.maxLastMaintDate.compareTo(max) > 0)) {
+                max = r.maxLastMaintDate;
+            }
+        }
+        return max;
+    }
+
+    /** 同一個 run 的所有 node 必須用相同 runId，預設為當天日期 */
+    private String resolveRunId() {
+        String runId = props.getRunId();
+        return runId == null || runId.isBlank() ? LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) : runId;
+    }
+
+    private String resolveNodeId() {
+        String nodeId = props.getNodeId();
+        return nodeId == null || nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+    }
+
+    private int resolveBatchSize() {
+        return props.getBatchSize() > 0 ? props.getBatchSize() : 500;
+    }
+
+    private int resolveFetchSize() {
+        return props.getFetchSize() > 0 ? props.getFetchSize() : 1000;
     }
 
     private int resolvePageSize() {
@@ -158,8 +830,4 @@ public class DataTransferService {
         }
         return baseName;
     }
-
-    private static String trim(String s) {
-        return s == null ? null : s.trim();
-    }
 }
\ No newline at end of file
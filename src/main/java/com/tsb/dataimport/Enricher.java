@@ -0,0 +1,80 @@
+package com.tsb.dataimport;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一個執行緒的 enrichment：BANCS_SK_CUST_INFO 客戶查詢 + 分行 103 XREF 轉換。
+ * 關閉時一併關閉自己開的 connection。
+ */
+final class Enricher implements AutoCloseable {
+
+    private final CustInfoLookup custLookup;
+    private final XrefResolver xrefResolver;
+    private final TransferMetrics metrics;
+    private final Connection[] ownedConnections;
+
+    Enricher(CustInfoLookup custLookup, XrefResolver xrefResolver, TransferMetrics metrics,
+             Connection... ownedConnections) {
+        this.custLookup = custLookup;
+        this.xrefResolver = xrefResolver;
+        this.metrics = metrics;
+        this.ownedConnections = ownedConnections;
+    }
+
+    void enrich(List<ClnaRow> page) throws SQLException {
+        long t0 = System.nanoTime();
+        custLookup.resolve(page);
+        long t1 = System.nanoTime();
+        xrefResolver.resolve(page);
+        metrics.custLookup.record(t1 - t0, TimeUnit.NANOSECONDS);
+        metrics.xref.record(System.nanoTime() - t1, TimeUnit.NANOSECONDS);
+
+        int hits = 0, xrefCandidates = 0, mapped = 0;
+        for (ClnaRow row : page) {
+            if (row.tsCustId == null) continue;
+            hits++;
+            if (XrefResolver.XREF_BSB_NO.equals(row.bsbNo)) {
+                xrefCandidates++;
+                if (XrefResolver.MAPPED_BSB_NO.equals(row.targetBsbNo)) mapped++;
+            }
+        }
+        metrics.custHits.increment(hits);
+        metrics.custMisses.increment(page.size() - hits);
+        metrics.xrefMapped.increment(mapped);
+        metrics.xrefUnmapped.increment(xrefCandidates - mapped);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        // 每個都要關，第一個失敗之後的例外附在第一個的 suppressed
+        SQLException first = null;
+        try {
+            xrefResolver.close();
+        } catch (SQLException e) {
+            first = e;
+        }
+        try {
+            custLookup.close();
+        } catch (SQLException e) {
+            first = suppress(first, e);
+        }
+        for (Connection c : ownedConnections) {
+            if (c == null) continue;
+            try {
+                c.close();
+            } catch (SQLException e) {
+                first = suppress(first, e);
+            }
+        }
+        if (first != null) throw first;
+    }
+
+    private static SQLException suppress(SQLException first, SQLException e) {
+        if (first == null) return e;
+        first.addSuppressed(e);
+        return first;
+    }
+}
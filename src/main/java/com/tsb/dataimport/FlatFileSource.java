@@ -0,0 +1,401 @@
+package com.tsb.dataimport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 直接讀 BANCS_MIN_CLNA 落地檔 (定長或分隔字元)，不先 staging 到 Oracle。
+ *
+ * 檔案以 memory-mapped 方式讀取，欄位直接在 mapped buffer 上以 byte 位移切開後才各自解碼，
+ * 所以 transfer_note 含多位元組字元 (UTF-8 / MS950) 時後面欄位的位置不受影響。
+ * 只為下游會用到的欄位建立 String (分行代碼、帳號類別等短代碼用 {@link Codes} 的共用字串)，其餘欄位直接跳過。
+ * 頁與 row 物件經 {@link PagePool} 重複使用。
+ * 大檔可切成 chunkCount 段 (切在記錄邊界)，每段一個 FlatFileSource，可在不同執行緒同時解析。
+ */
+final class FlatFileSource implements ClnaSource {
+
+    enum Format { FIXED, DELIMITED }
+
+    /** BANCS_MIN_CLNA 欄位順序與定長寬度，單位是 byte 不是字元 (transfer_note 80 bytes 可能只有 26 個中文字) */
+    static final int[] FIELD_WIDTHS = { 11, 3, 16, 3, 1, 8, 4, 5, 1, 80, 1 };
+    static final int FIXED_WIDTH;
+    private static final int[] FIELD_OFFSETS = new int[FIELD_WIDTHS.length];
+
+    static {
+        int offset = 0;
+        for (int i = 0; i < FIELD_WIDTHS.length; i++) {
+            FIELD_OFFSETS[i] = offset;
+            offset += FIELD_WIDTHS[i];
+        }
+        FIXED_WIDTH = offset;
+    }
+
+    private static final int F_CUST_ID = 0;
+    private static final int F_BSB_NO = 1;
+    private static final int F_ACCT_NO = 2;
+    private static final int F_LAST_MAINT_DATE = 5;
+    private static final int F_NOM_ACCT_TYPE = 8;
+    private static final int F_TRANSFER_NOTE = 9;
+
+    /** 單一 mapping 的上限 (MappedByteBuffer 以 int 定址)，超過時在記錄邊界重新 map */
+    private static final long MAX_WINDOW = 1L << 30;
+
+    private final FileChannel channel;
+    private final Format format;
+    private final byte delimiter;
+    private final Charset noteCharset;
+    private final int recordLength;
+    private final long start;
+    private final long end;
+    private final int pageSize;
+    private final AdaptiveSizer pageSizer;
+    private final TransferMetrics metrics;
+
+    // 目前 map 的區段
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLength;
+
+    private long pos;
+    // nextLine 找到的行尾 (不含 \r\n，window 內的位移)
+    private int lineEndExclusive;
+    private long recordNo;
+    private String maxLastMaintDate;
+    // 解析用的暫存，每個 source 一份
+    private final byte[] scratch = new byte[FIELD_WIDTHS[F_TRANSFER_NOTE] * 4];
+    private final int[] fieldStart = new int[FIELD_WIDTHS.length];
+    private final int[] fieldEnd = new int[FIELD_WIDTHS.length];
+    private final PagePool pool;
+
+    private FlatFileSource(FileChannel channel, Format format, byte delimiter, Charset noteCharset,
+                           int recordLength, long start, long end, int pageSize, TransferMetrics metrics) {
+        this.channel = channel;
+        this.format = format;
+        this.delimiter = delimiter;
+        this.noteCharset = noteCharset;
+        this.recordLength = recordLength;
+        this.start = start;
+        this.end = end;
+        this.pageSize = pageSize;
+        this.pageSizer = AdaptiveSizer.fixed(pageSize);
+        this.metrics = metrics;
+        this.pool = new PagePool(pageSize);
+        this.pos = start;
+    }
+
+    /**
+     * 開啟檔案的第 chunkNo 段 (共 chunkCount 段)。
+     *
+     * @param delimiter   DELIMITED 格式的分隔字元 (單一 byte)
+     * @param noteCharset transfer_note 的編碼 (其他欄位皆為 ASCII)
+     */
+    static FlatFileSource open(Path file, Format format, char delimiter, Charset noteCharset,
+                               int chunkNo, int chunkCount, int pageSize, TransferMetrics metrics) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            long start;
+            long end;
+            int recordLength = 0;
+            if (format == Format.FIXED) {
+                recordLength = fixedRecordLength(channel);
+                long records = (size + recordLength - 1) / recordLength;
+                start = records * chunkNo / chunkCount * recordLength;
+                end = Math.min(size, records * (chunkNo + 1) / chunkCount * recordLength);
+            } else {
+                start = chunkNo == 0 ? 0 : nextLineStart(channel, size * chunkNo / chunkCount);
+                end = chunkNo == chunkCount - 1 ? size : nextLineStart(channel, size * (chunkNo + 1) / chunkCount);
+            }
+            return new FlatFileSource(channel, format, (byte) delimiter, noteCharset, recordLength, start, end, pageSize, metrics);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** 估算檔案的記錄數 (進度 ETA 用)：定長為精確值，分隔字元以檔頭的平均行長估算 */
+    static long estimateRecords(Path file, Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return 0;
+            if (format == Format.FIXED) {
+                int recordLength = fixedRecordLength(channel);
+                return (size + recordLength - 1) / recordLength;
+            }
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(size, 1 << 16));
+            channel.read(sample, 0);
+            int lines = 0;
+            for (int i = 0; i < sample.position(); i++) {
+                if (sample.get(i) == '\n') lines++;
+            }
+            return lines == 0 ? 1 : size * lines / sample.position();
+        }
+    }
+
+    /** 定長記錄含換行的長度：看第一筆之後是 \r\n、\n 或沒有換行 */
+    private static int fixedRecordLength(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(FIXED_WIDTH + 2);
+        channel.read(head, 0);
+        if (head.position() <= FIXED_WIDTH) return FIXED_WIDTH;
+        byte b = head.get(FIXED_WIDTH);
+        if (b == '\n') return FIXED_WIDTH + 1;
+        if (b == '\r') return head.position() > FIXED_WIDTH + 1 && head.get(FIXED_WIDTH + 1) == '\n' ? FIXED_WIDTH + 2 : FIXED_WIDTH + 1;
+        return FIXED_WIDTH;
+    }
+
+    /** from 所在的行若不是從 from 開始，回傳下一行的開頭 */
+    private static long nextLineStart(FileChannel channel, long from) throws IOException {
+        long size = channel.size();
+        if (from <= 0) return 0;
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long p = from - 1;
+        while (p < size) {
+            buf.clear();
+            int n = channel.read(buf, p);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return p + i + 1;
+            }
+            p += n;
+        }
+        return size;
+    }
+
+    @Override
+    public List<ClnaRow> nextPage() {
+        List<ClnaRow> page = pool.take();
+        long t0 = System.nanoTime();
+        int n = 0;
+        while (n < pageSize) {
+            boolean found = format == Format.FIXED ? nextFixed() : nextDelimited();
+            if (!found) break;
+            toRow(PagePool.slot(page, n++));
+        }
+        PagePool.truncate(page, n);
+        metrics.pageFetch.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        metrics.rowsRead.increment(n);
+        return page;
+    }
+
+    @Override
+    public void recycle(List<ClnaRow> page) {
+        pool.recycle(page);
+    }
+
+    /** resume：略過 checkpoint 時已讀過的記錄數 */
+    @Override
+    public void resumeAfter(CheckpointStore.Checkpoint checkpoint) {
+        long skip = checkpoint.rowsRead;
+        if (format == Format.FIXED) {
+            pos = Math.min(end, start + skip * recordLength);
+            recordNo = skip;
+            return;
+        }
+        while (recordNo < skip && nextDelimited()) {
+            // 逐行略過 (只切欄位不解碼)，記錄數由 nextDelimited 累計
+        }
+    }
+
+    /** 定位下一筆記錄的各欄位 (fieldStart / fieldEnd)，已到段尾時回傳 false */
+    private boolean nextFixed() {
+        if (end - pos < FIXED_WIDTH) {
+            if (pos < end) map(pos, (int) (end - pos));
+            for (long p = pos; p < end; p++) {
+                if ((window.get((int) (p - windowStart)) & 0xff) > ' ') {
+                    throw new IllegalStateException("Truncated fixed-width record at offset " + pos);
+                }
+            }
+            pos = end;
+            return false;
+        }
+        map(pos, FIXED_WIDTH);
+        int base = (int) (pos - windowStart);
+        for (int i = 0; i < FIELD_WIDTHS.length; i++) {
+            fieldStart[i] = base + FIELD_OFFSETS[i];
+            fieldEnd[i] = fieldStart[i] + FIELD_WIDTHS[i];
+        }
+        pos = Math.min(end, pos + recordLength);
+        recordNo++;
+        return true;
+    }
+
+    private boolean nextDelimited() {
+        while (true) {
+            int lineStart = nextLine();
+            if (lineStart < 0) return false;
+            int lineEnd = lineEndExclusive;
+            if (lineEnd == lineStart) continue;   // 空行
+            int field = 0;
+            fieldStart[0] = lineStart;
+            for (int i = lineStart; i < lineEnd && field < F_TRANSFER_NOTE; i++) {
+                if (window.get(i) == delimiter) {
+                    fieldEnd[field++] = i;
+                    fieldStart[field] = i + 1;
+                }
+            }
+            if (field < F_TRANSFER_NOTE) {
+                throw new IllegalStateException("Record " + (recordNo + 1) + " has " + (field + 1) + " fields, expected "
+                    + FIELD_WIDTHS.length);
+            }
+            // transfer_note 之後的欄位從行尾往回切：MS950 / Big5 雙位元組字的第二個 byte 可能就是分隔字元
+            int to = lineEnd;
+            for (int f = FIELD_WIDTHS.length - 1; f > F_TRANSFER_NOTE; f--) {
+                int i = to - 1;
+                while (i >= fieldStart[F_TRANSFER_NOTE] && window.get(i) != delimiter) i--;
+                if (i < fieldStart[F_TRANSFER_NOTE]) {
+                    fieldStart[f] = lineEnd;   // 行尾少了這個欄位
+                    fieldEnd[f] = lineEnd;
+                    continue;
+                }
+                fieldStart[f] = i + 1;
+                fieldEnd[f] = to;
+                to = i;
+            }
+            fieldEnd[F_TRANSFER_NOTE] = to;
+            recordNo++;
+            return true;
+        }
+    }
+
+    /**
+     * 找下一行並把 pos 移到下一行開頭；回傳行首在 window 內的位移，已到段尾時回傳 -1。
+     * 行跨 window 邊界時從行首重新 map。
+     */
+    private int nextLine() {
+        if (pos >= end) return -1;
+        map(pos, 1);
+        int from = (int) (pos - windowStart);
+        int i = from;
+        while (true) {
+            if (i == windowLength) {
+                long windowEnd = windowStart + windowLength;
+                if (windowEnd >= end) break;           // 段尾最後一行沒有換行
+                if (from == 0) {
+                    throw new IllegalStateException("Line at offset " + pos + " longer than " + MAX_WINDOW + " bytes");
+                }
+                remap(pos);
+                i = i - from;
+                from = 0;
+                continue;
+            }
+            if (window.get(i) == '\n') break;
+            i++;
+        }
+        int lineEnd = i;
+        pos = windowStart + Math.min(windowLength, i + 1);
+        if (lineEnd > from && window.get(lineEnd - 1) == '\r') lineEnd--;
+        lineEndExclusive = lineEnd;
+        return from;
+    }
+
+    /** 把目前定位好的欄位解碼填入 row */
+    private void toRow(ClnaRow row) {
+        row.custIdNo = ascii(F_CUST_ID);
+        row.bsbNo = bsbCode(F_BSB_NO);
+        row.acctNo = ascii(F_ACCT_NO);
+        row.lastMaintDate = ascii(F_LAST_MAINT_DATE);
+        row.nomAcctType = ascii(F_NOM_ACCT_TYPE);
+        row.transferNote = decode(F_TRANSFER_NOTE, noteCharset);
+        // 檔案沒有 DB 的 CHAR padding 問題，原始鍵值即 trim 後的值
+        row.keyCustId = row.custIdNo;
+        row.keyBsbNo = row.bsbNo;
+        row.keyAcctNo = row.acctNo;
+        if (row.lastMaintDate != null
+                && (maxLastMaintDate == null || row.lastMaintDate.compareTo(maxLastMaintDate) > 0)) {
+            maxLastMaintDate = row.lastMaintDate;
+        }
+    }
+
+    /** 單一字元的欄位回傳共用字串，其他以 ISO-8859-1 解碼 */
+    private String ascii(int field) {
+        if (!trimField(field)) return null;
+        int from = fieldStart[field];
+        if (fieldEnd[field] - from == 1) {
+            int b = window.get(from) & 0xff;
+            if (b < 128) return Codes.ascii(b);
+        }
+        return decode(field, StandardCharsets.ISO_8859_1);
+    }
+
+    private String bsbCode(int field) {
+        if (!trimField(field)) return null;
+        int from = fieldStart[field];
+        if (fieldEnd[field] - from == 3) {
+            int d0 = window.get(from) - '0';
+            int d1 = window.get(from + 1) - '0';
+            int d2 = window.get(from + 2) - '0';
+            if ((d0 | d1 | d2) >= 0 && d0 <= 9 && d1 <= 9 && d2 <= 9) {
+                return Codes.digits3(d0 * 100 + d1 * 10 + d2);
+            }
+        }
+        return decode(field, StandardCharsets.ISO_8859_1);
+    }
+
+    private String decode(int field, Charset charset) {
+        if (!trimField(field)) return null;
+        int len = fieldEnd[field] - fieldStart[field];
+        byte[] bytes = len <= scratch.length ? scratch : new byte[len];
+        window.get(fieldStart[field], bytes, 0, len);
+        return new String(bytes, 0, len, charset);
+    }
+
+    /** 去掉欄位前後空白 (與 String.trim 相同的規則)，回傳是否還有內容 */
+    private boolean trimField(int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        while (from < to && (window.get(from) & 0xff) <= ' ') from++;
+        while (to > from && (window.get(to - 1) & 0xff) <= ' ') to--;
+        fieldStart[field] = from;
+        fieldEnd[field] = to;
+        return from < to;
+    }
+
+    /** 確保 [from, from + length) 在目前的 window 內 */
+    private void map(long from, int length) {
+        if (window != null && from >= windowStart && from + length <= windowStart + windowLength) return;
+        remap(from);
+    }
+
+    private void remap(long from) {
+        try {
+            windowStart = from;
+            windowLength = (int) Math.min(end - from, MAX_WINDOW);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public AdaptiveSizer fetchSizer() {
+        return pageSizer;
+    }
+
+    @Override
+    public String maxLastMaintDate() {
+        return maxLastMaintDate;
+    }
+
+    @Override
+    public String lastKey() {
+        return "record " + recordNo + " (offset " + pos + ")";
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
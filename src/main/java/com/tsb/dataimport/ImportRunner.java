@@ -1,28 +1,116 @@
 package com.tsb.dataimport;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 import com.tsb.test.TestDataPreparator;
+import com.tsb.utils.NotificationService;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 批次入口：java -jar app.jar [mode] [--resume] [--repair] [--spring.xxx=...]
+ *
+ * mode (省略時依 datatransfer.sync-mode 轉檔)：
+ *   full         - 全量轉檔 (syncMode=FULL)；未加 --resume 時先重建測試表
+ *   delta        - 增量轉檔 (syncMode=DELTA)；沿用既有的測試表
+ *   reconcile    - 不轉檔，比對來源與目標表並寫出差異 (DATATRANSFER_RECON_DIFF)；加 --repair 時依差異修正。
+ *                  應有的資料以 push-down 的 SQL 規則在 DB 內產生 (不是 Java 轉檔路徑)，
+ *                  main 與 lookup DataSource 必須在同一個資料庫，否則啟動即報錯
+ *   prepare-test - 只建立測試表 (testtable.*)，不轉檔
+ *
+ * --resume：從 DATATRANSFER_CHECKPOINT 接續同一個 runId (datatransfer.run-id) 上次中斷的位置
+ * 舊的 --reconcile 參數仍視為 reconcile。
+ */
 @Component
 public class ImportRunner implements CommandLineRunner {
 
-//	private final TestDataPreparator preparator;
-//    private final DataTransferService service;
-//    private final DataTransferProperties props;
-//    
-//    public ImportRunner(TestDataPreparator preparator, DataTransferService service, DataTransferProperties props) {
-//        this.preparator = preparator;
-//        this.service = service;
-//        this.props = props;
-//    }
-
-    
+    private static final Logger logger = LoggerFactory.getLogger(ImportRunner.class);
+
+    enum Mode { FULL, DELTA, RECONCILE, PREPARE_TEST }
+
+    private static final String USAGE = "usage: [full|delta|reconcile|prepare-test] [--resume] [--repair]"
+        + " (reconcile needs the main and lookup DataSources on the same database)";
+
+    private final TestDataPreparator preparator;
+    private final DataTransferService service;
+    private final TransferMetrics metrics;
+    private final DataTransferProperties props;
+    private final NotificationService notifications;
+
+    public ImportRunner(TestDataPreparator preparator, DataTransferService service,
+                        TransferMetrics metrics, DataTransferProperties props,
+                        NotificationService notifications) {
+        this.preparator = preparator;
+        this.service = service;
+        this.metrics = metrics;
+        this.props = props;
+        this.notifications = notifications;
+    }
+
     @Override
     public void run(String... args) throws Exception {
-//    	preparator.prepareIfNeeded();
-//        service.runAll();
+        List<String> modes = new ArrayList<>();
+        boolean resume = false;
+        boolean repair = false;
+        for (String arg : args) {
+            if (arg.equals("--resume")) resume = true;
+            else if (arg.equals("--repair")) repair = true;
+            else if (arg.equals("--reconcile")) modes.add("reconcile");
+            else if (!arg.startsWith("--")) modes.add(arg);
+        }
+        if (modes.size() > 1) {
+            throw new IllegalArgumentException("Only one mode allowed, got " + modes + "; " + USAGE);
+        }
+        Mode mode = modes.isEmpty() ? defaultMode() : parseMode(modes.get(0));
+        logger.info("ImportRunner mode={} resume={} repair={} (context ready {}ms after JVM start)",
+            mode, resume, repair, TransferMetrics.sinceJvmStart());
+
+        switch (mode) {
+            case PREPARE_TEST:
+                preparator.prepareTestTables();
+                return;
+            case RECONCILE:
+                // 對帳不重建測試表，只切換到測試表名
+                preparator.useTestTables();
+                break;
+            default:
+                props.setSyncMode(mode.name());
+                // resume / delta 接續 checkpoint / watermark 寫入既有的測試表，重建會丟掉之前寫入的資料
+                if (mode == Mode.FULL && !resume) {
+                    preparator.prepareTestTables();
+                } else {
+                    preparator.useTestTables();
+                }
+        }
+        try {
+            if (mode == Mode.RECONCILE) {
+                service.reconcile(repair);
+            } else {
+                service.runAll(resume);
+            }
+        } catch (Exception e) {
+            notifications.failure("DataTransfer failed (" + mode + ")", e);
+            throw e;
+        } finally {
+            // 失敗時也寫出，方便看卡在哪個階段
+            metrics.export(props.getMetricsFile());
+        }
+    }
+
+    private Mode defaultMode() {
+        return "DELTA".equalsIgnoreCase(props.getSyncMode()) ? Mode.DELTA : Mode.FULL;
+    }
+
+    private static Mode parseMode(String arg) {
+        try {
+            return Mode.valueOf(arg.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown mode '" + arg + "'; " + USAGE);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,10 @@
 package com.tsb.dataimport;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * MergeSqlBuilder - 建構 Oracle MERGE INTO SQL 模板。
  *
@@ -11,8 +16,68 @@ package com.tsb.dataimport;
  */
 public class MergeSqlBuilder {
 
+    /** key 不存在才 INSERT，已存在則略過 (update count = 0) */
     public static String buildMergeInsertSql(String table, String[] insertCols, String[] keyCols) {
+        return buildMergeInsertSql(table, insertCols, keyCols, Map.of());
+    }
+
+    /**
+     * 同上，insertExprs 中的欄位在 INSERT 時改用 SQL 運算式 (例如 seq_no 用 sequence.NEXTVAL)，
+     * 該欄位仍佔一個 bind 位置 (bind NULL 即可)。
+     */
+    public static String buildMergeInsertSql(String table, String[] insertCols, String[] keyCols, Map<String, String> insertExprs) {
+        StringBuilder sb = new StringBuilder();
+        appendUsingOn(sb, table, insertCols, keyCols);
+        appendInsert(sb, insertCols, insertExprs);
+        return sb.toString();
+    }
+
+    /**
+     * key 不存在則 INSERT，存在則更新非 key 欄位；只有值真的不同才更新，
+     * 所以內容相同的資料 update count = 0，可用來區分「寫入」與「未變動」。
+     */
+    public static String buildMergeUpsertSql(String table, String[] insertCols, String[] keyCols) {
+        return buildMergeUpsertSql(table, insertCols, keyCols, new String[0]);
+    }
+
+    /**
+     * 同上，insertOnlyCols (例如配號的 seq_no) 只在 INSERT 時寫入，已存在時不更新。
+     */
+    public static String buildMergeUpsertSql(String table, String[] insertCols, String[] keyCols, String[] insertOnlyCols) {
+        return buildMergeUpsertSql(table, insertCols, keyCols, insertOnlyCols, Map.of());
+    }
+
+    /** 同上，insertExprs 見 {@link #buildMergeInsertSql(String, String[], String[], Map)} */
+    public static String buildMergeUpsertSql(String table, String[] insertCols, String[] keyCols, String[] insertOnlyCols,
+                                             Map<String, String> insertExprs) {
+        Set<String> keys = new HashSet<>();
+        for (String k : keyCols) keys.add(k.toLowerCase());
+        for (String c : insertOnlyCols) keys.add(c.toLowerCase());
+        String[] updateCols = Arrays.stream(insertCols)
+                .filter(c -> !keys.contains(c.toLowerCase()))
+                .toArray(String[]::new);
+        if (updateCols.length == 0) {
+            return buildMergeInsertSql(table, insertCols, keyCols, insertExprs);
+        }
+
         StringBuilder sb = new StringBuilder();
+        appendUsingOn(sb, table, insertCols, keyCols);
+        sb.append("\nWHEN MATCHED THEN\nUPDATE SET ");
+        for (int i = 0; i < updateCols.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append("tgt.").append(updateCols[i]).append(" = src.").append(updateCols[i]);
+        }
+        // DECODE 視 NULL = NULL，不會因為兩邊都是 NULL 而重複更新
+        sb.append("\nWHERE ");
+        for (int i = 0; i < updateCols.length; i++) {
+            if (i > 0) sb.append(" OR ");
+            sb.append("DECODE(tgt.").append(updateCols[i]).append(", src.").append(updateCols[i]).append(", 0, 1) = 1");
+        }
+        appendInsert(sb, insertCols, insertExprs);
+        return sb.toString();
+    }
+
+    private static void appendUsingOn(StringBuilder sb, String table, String[] insertCols, String[] keyCols) {
         sb.append("MERGE INTO ").append(table).append(" tgt\n")
           .append("USING (SELECT ");
 
@@ -26,7 +91,11 @@ public class MergeSqlBuilder {
             if (i > 0) sb.append(" AND ");
             sb.append("tgt.").append(keyCols[i]).append(" = src.").append(keyCols[i]);
         }
-        sb.append(")\nWHEN NOT MATCHED THEN\nINSERT (");
+        sb.append(")");
+    }
+
+    private static void appendInsert(StringBuilder sb, String[] insertCols, Map<String, String> insertExprs) {
+        sb.append("\nWHEN NOT MATCHED THEN\nINSERT (");
 
         for (int i = 0; i < insertCols.length; i++) {
             if (i > 0) sb.append(", ");
@@ -35,10 +104,9 @@ public class MergeSqlBuilder {
         sb.append(")\nVALUES (");
         for (int i = 0; i < insertCols.length; i++) {
             if (i > 0) sb.append(", ");
-            sb.append("src.").append(insertCols[i]);
+            String expr = insertExprs.get(insertCols[i]);
+            sb.append(expr != null ? expr : "src." + insertCols[i]);
         }
         sb.append(")");
-
-        return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package com.tsb.dataimport;
+
+import java.sql.SQLException;
+
+/**
+ * 每頁 commit 後的回呼，例如延長 partition lease。
+ */
+interface PageListener {
+
+    PageListener NONE = rowsRead -> { };
+
+    /** @param rowsRead 本切片目前為止讀取的來源筆數 */
+    void pageCommitted(long rowsRead) throws SQLException;
+}
@@ -0,0 +1,53 @@
+package com.tsb.dataimport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 寫完的頁交回 ({@link ClnaSource#recycle})，reader 下次讀取時沿用同一個 list 與其中的 {@link ClnaRow}，
+ * 只重填欄位，不必每筆 new 一個物件。pipeline 模式由 writer 執行緒交回、reader 執行緒取用，可跨執行緒。
+ */
+final class PagePool {
+
+    /** 最多保留的頁數；pipeline 同時在途的頁數由 semaphore 限制，通常不會超過 */
+    private static final int CAPACITY = 16;
+
+    private final ArrayBlockingQueue<List<ClnaRow>> free = new ArrayBlockingQueue<>(CAPACITY);
+    private final int pageSize;
+
+    PagePool(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /** 交回的頁；沒有時給一個新的空頁 */
+    List<ClnaRow> take() {
+        List<ClnaRow> page = free.poll();
+        return page != null ? page : new ArrayList<>(pageSize);
+    }
+
+    /** 池子滿了就丟掉 */
+    void recycle(List<ClnaRow> page) {
+        if (page instanceof ArrayList && !page.isEmpty()) free.offer(page);
+    }
+
+    /** 頁中第 i 筆：沿用舊的 row (清掉上一輪 lookup 的結果)，不足時新增 */
+    static ClnaRow slot(List<ClnaRow> page, int i) {
+        if (i < page.size()) {
+            ClnaRow row = page.get(i);
+            row.tsCustId = null;
+            row.custIdType = null;
+            row.targetBsbNo = null;
+            row.targetAcctNo = null;
+            return row;
+        }
+        ClnaRow row = new ClnaRow();
+        page.add(row);
+        return row;
+    }
+
+    /** 去掉這一輪沒有用到的舊 row */
+    static void truncate(List<ClnaRow> page, int size) {
+        if (page.size() > size) page.subList(size, page.size()).clear();
+    }
+}
@@ -0,0 +1,12 @@
+package com.tsb.dataimport;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 一頁 enrich 完的資料要在同一個 transaction 內做的所有寫入 (目標表、issync 回寫等)，commit 由呼叫端負責。
+ */
+interface PageSink {
+
+    void write(List<ClnaRow> page) throws SQLException;
+}
@@ -0,0 +1,190 @@
+package com.tsb.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多台 JVM 分工跑同一個 run 的 partition：以主庫的 DATATRANSFER_PARTITION_LEASE 記錄每個 partition
+ * 由哪個 node 認領、lease 到期時間與狀態 (PENDING / RUNNING / DONE / FAILED)。
+ *
+ * 認領以條件式 UPDATE 搶占，lease 過期 (node 掛掉) 或 FAILED 的 partition 可被其他 node 接手。
+ * 每次認領 attempts + 1，超過 maxAttempts 不再認領；FAILED 時 lease_until 改記可重試的時間
+ * (第 n 次失敗後等 n * retryDelaySeconds)，避免壞掉的 partition 被各 node 立刻輪流重跑。
+ */
+final class PartitionLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionLeaseManager.class);
+
+    static final String LEASE_TABLE = "DATATRANSFER_PARTITION_LEASE";
+
+    private final DataSource ds;
+    private final String runId;
+    private final String nodeId;
+    private final int leaseSeconds;
+    private final int maxAttempts;
+    private final int retryDelaySeconds;
+    /** PENDING，或 RUNNING lease 過期 / FAILED 已過重試時間且還有認領次數 */
+    private final String claimable;
+
+    PartitionLeaseManager(DataSource ds, String runId, String nodeId, int leaseSeconds,
+                          int maxAttempts, int retryDelaySeconds) {
+        this.ds = ds;
+        this.runId = runId;
+        this.nodeId = nodeId;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelaySeconds = Math.max(0, retryDelaySeconds);
+        this.claimable = "(status = 'PENDING' OR (status IN ('RUNNING', 'FAILED') AND lease_until < SYSTIMESTAMP AND attempts < "
+            + this.maxAttempts + "))";
+    }
+
+    /**
+     * 建立本 run 的 partition 記錄，已存在的 (其他 node 建的) 不動。
+     * 所有 partition 都已 DONE 時 (runId 重複使用) 發出警告，本 node 不會認領到任何 partition。
+     */
+    void init(int partitionCount) throws SQLException {
+        String sql = "MERGE INTO " + LEASE_TABLE + " l USING (SELECT ? AS run_id, ? AS partition_no FROM DUAL) s " +
+            "ON (l.run_id = s.run_id AND l.partition_no = s.partition_no) " +
+            "WHEN NOT MATCHED THEN INSERT (run_id, partition_no, partition_count, status, rows_processed, attempts) " +
+            "VALUES (s.run_id, s.partition_no, ?, 'PENDING', 0, 0)";
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int p = 0; p < partitionCount; p++) {
+                ps.setString(1, runId);
+                ps.setInt(2, p);
+                ps.setInt(3, partitionCount);
+                try {
+                    ps.executeUpdate();
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // 其他 node 同時建立，忽略
+                }
+            }
+            commit(conn);
+            try (PreparedStatement count = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM " + LEASE_TABLE + " WHERE run_id = ? AND status <> 'DONE'")) {
+                count.setString(1, runId);
+                try (ResultSet rs = count.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) == 0) {
+                        logger.warn("All {} partitions of run {} are already DONE, nothing to transfer; set a new datatransfer.run-id for a new run",
+                            partitionCount, runId);
+                    }
+                }
+            }
+        }
+        logger.info("Partition leases ready: runId={} partitions={} node={}", runId, partitionCount, nodeId);
+    }
+
+    /** 認領下一個可處理的 partition，沒有了回傳 null */
+    Integer claim() throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            List<Integer> candidates = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT partition_no FROM " + LEASE_TABLE + " WHERE run_id = ? AND " + claimable + " ORDER BY partition_no")) {
+                ps.setString(1, runId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) candidates.add(rs.getInt(1));
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE " + LEASE_TABLE + " SET status = 'RUNNING', owner = ?, " +
+                    "lease_until = SYSTIMESTAMP + NUMTODSINTERVAL(?, 'SECOND'), started_at = SYSTIMESTAMP, rows_processed = 0, " +
+                    "attempts = attempts + 1 " +
+                    "WHERE run_id = ? AND partition_no = ? AND " + claimable)) {
+                for (Integer p : candidates) {
+                    ps.setString(1, nodeId);
+                    ps.setInt(2, leaseSeconds);
+                    ps.setString(3, runId);
+                    ps.setInt(4, p);
+                    if (ps.executeUpdate() == 1) {
+                        commit(conn);
+                        logger.info("Node {} claimed partition {} of run {}", nodeId, p, runId);
+                        return p;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 本 node 已認領不到 partition 時檢查：有 partition 用完認領次數仍未 DONE (FAILED 或 lease 已過期) 時丟出例外，
+     * 其他未完成的 (別的 node 處理中或等待重試) 只記 log。
+     */
+    void checkFinished() throws SQLException {
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                 "SELECT partition_no, attempts, CASE WHEN status = 'FAILED' OR lease_until < SYSTIMESTAMP THEN 1 ELSE 0 END " +
+                 "FROM " + LEASE_TABLE + " WHERE run_id = ? AND status <> 'DONE' ORDER BY partition_no")) {
+            ps.setString(1, runId);
+            List<Integer> exhausted = new ArrayList<>();
+            int pending = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getInt(2) >= maxAttempts && rs.getInt(3) == 1) {
+                        exhausted.add(rs.getInt(1));
+                    } else {
+                        pending++;
+                    }
+                }
+            }
+            if (pending > 0) {
+                logger.info("Node {} found no claimable partition; {} partitions of run {} are running on other nodes or waiting to retry",
+                    nodeId, pending, runId);
+            }
+            if (!exhausted.isEmpty()) {
+                throw new IllegalStateException("Partitions " + exhausted + " of run " + runId + " failed " + maxAttempts
+                    + " times; fix the cause and reset their attempts in " + LEASE_TABLE + " (or use a new runId)");
+            }
+        }
+    }
+
+    /** 延長 lease；lease 已被其他 node 接手時丟出例外，呼叫端應停止該 partition */
+    void renew(int partitionNo, long rowsProcessed) throws SQLException {
+        int n = update("UPDATE " + LEASE_TABLE + " SET lease_until = SYSTIMESTAMP + NUMTODSINTERVAL(?, 'SECOND'), rows_processed = ? " +
+            "WHERE run_id = ? AND partition_no = ? AND owner = ? AND status = 'RUNNING'",
+            leaseSeconds, rowsProcessed, runId, partitionNo, nodeId);
+        if (n != 1) {
+            throw new IllegalStateException("Lease lost for partition " + partitionNo + " of run " + runId);
+        }
+    }
+
+    void complete(int partitionNo, long rowsProcessed) throws SQLException {
+        update("UPDATE " + LEASE_TABLE + " SET status = 'DONE', lease_until = NULL, finished_at = SYSTIMESTAMP, rows_processed = ? " +
+            "WHERE run_id = ? AND partition_no = ? AND owner = ?",
+            rowsProcessed, runId, partitionNo, nodeId);
+    }
+
+    /** 標為 FAILED，lease_until 記下最早可重試的時間 */
+    void fail(int partitionNo) throws SQLException {
+        update("UPDATE " + LEASE_TABLE + " SET status = 'FAILED', lease_until = SYSTIMESTAMP + NUMTODSINTERVAL(? * attempts, 'SECOND') " +
+            "WHERE run_id = ? AND partition_no = ? AND owner = ?",
+            retryDelaySeconds, runId, partitionNo, nodeId);
+    }
+
+    int leaseSeconds() { return leaseSeconds; }
+
+    private int update(String sql, Object... binds) throws SQLException {
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < binds.length; i++) {
+                ps.setObject(i + 1, binds[i]);
+            }
+            int n = ps.executeUpdate();
+            commit(conn);
+            return n;
+        }
+    }
+
+    private static void commit(Connection conn) throws SQLException {
+        if (!conn.getAutoCommit()) conn.commit();
+    }
+}
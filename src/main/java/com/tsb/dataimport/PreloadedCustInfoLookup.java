@@ -0,0 +1,74 @@
+package com.tsb.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 啟動時以一次串流掃描把 BANCS_SK_CUST_INFO 全部載入 {@link CustInfoTable}，之後查詢不再連 DB。
+ */
+final class PreloadedCustInfoLookup implements CustInfoLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreloadedCustInfoLookup.class);
+
+    private final CustInfoTable table;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private PreloadedCustInfoLookup(CustInfoTable table) {
+        this.table = table;
+    }
+
+    static PreloadedCustInfoLookup load(Connection lookupConn, int expectedRows, int fetchSize) throws SQLException {
+        long start = System.currentTimeMillis();
+        CustInfoTable table = new CustInfoTable(expectedRows);
+        int scanned = 0;
+        try (PreparedStatement ps = lookupConn.prepareStatement(
+                "SELECT sk_cust_id, ts_cust_id, cust_id_type FROM BANCS_SK_CUST_INFO")) {
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (++scanned > expectedRows) {
+                        throw new IllegalStateException("BANCS_SK_CUST_INFO grew beyond " + expectedRows + " rows during preload");
+                    }
+                    table.put(trim(rs.getString(1)), trim(rs.getString(2)), trim(rs.getString(3)));
+                }
+            }
+        }
+        logger.info("Preloaded BANCS_SK_CUST_INFO: scanned={} entries={} footprint={}MB in {}ms",
+                scanned, table.size(), table.footprintBytes() / (1024 * 1024), System.currentTimeMillis() - start);
+        return new PreloadedCustInfoLookup(table);
+    }
+
+    @Override
+    public void resolve(List<ClnaRow> rows) {
+        for (ClnaRow row : rows) {
+            if (table.fill(row.custIdNo, row)) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+        }
+    }
+
+    @Override
+    public long hits() { return hits.sum(); }
+
+    @Override
+    public long misses() { return misses.sum(); }
+
+    @Override
+    public String describe() {
+        return "preload(entries=" + table.size() + ", footprint=" + table.footprintBytes() / (1024 * 1024) + "MB)";
+    }
+
+    private static String trim(String s) {
+        return s == null ? null : s.trim();
+    }
+}
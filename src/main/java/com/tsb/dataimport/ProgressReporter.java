@@ -0,0 +1,80 @@
+package com.tsb.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 定時輸出進度：已讀筆數、整體與最近一段時間的 rows/s，以及依最近速度估算的剩餘時間。
+ * 同一段文字另交給 listener (通知信的進度摘要)。
+ */
+final class ProgressReporter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgressReporter.class);
+
+    private final TransferMetrics metrics;
+    private final long expectedRows;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService timer;
+    // 建立時 registry 上已有的讀取筆數 (同一程序先前的 run)
+    private final long baseRows;
+    private final Consumer<String> listener;
+
+    private long lastRows;
+    private long lastNanos = startNanos;
+
+    /**
+     * @param expectedRows 預計處理的來源筆數，未知時傳 -1 (不顯示 ETA)
+     */
+    ProgressReporter(TransferMetrics metrics, long expectedRows, int intervalSeconds, Consumer<String> listener) {
+        this.metrics = metrics;
+        this.listener = listener;
+        this.expectedRows = expectedRows;
+        this.baseRows = metrics.rowsReadSoFar();
+        this.lastRows = baseRows;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "transfer-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        long rows = metrics.rowsReadSoFar();
+        long done = rows - baseRows;
+        double overall = done * 1e9 / Math.max(1, now - startNanos);
+        double recent = (rows - lastRows) * 1e9 / Math.max(1, now - lastNanos);
+        lastRows = rows;
+        lastNanos = now;
+        if (expectedRows > 0) {
+            long remaining = Math.max(0, expectedRows - done);
+            double rate = recent > 0 ? recent : overall;
+            String eta = rate > 0 ? format(Duration.ofSeconds((long) (remaining / rate))) : "-";
+            publish("read=" + done + "/" + expectedRows + " (" + done * 100 / expectedRows + "%) rate=" + (long) overall
+                + " rows/s (recent " + (long) recent + " rows/s) eta=" + eta);
+        } else {
+            publish("read=" + done + " rate=" + (long) overall + " rows/s (recent " + (long) recent + " rows/s)");
+        }
+    }
+
+    private void publish(String progress) {
+        logger.info("Progress: {}", progress);
+        listener.accept(progress);
+    }
+
+    private static String format(Duration d) {
+        return String.format("%d:%02d:%02d", d.toHours(), d.toMinutesPart(), d.toSecondsPart());
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,152 @@
+package com.tsb.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * mainDataSource 與 lookupDataSource 指向同一個資料庫時，改以 set-based SQL 在 DB 內完成整個轉檔：
+ * 每個目標表一句帶 APPEND / PARALLEL hint 的 INSERT ... SELECT，
+ * BANCS_MIN_CLNA JOIN BANCS_SK_CUST_INFO、分行 103 LEFT JOIN XREF、依 clna_nom_acct_type 分流。
+ *
+ * 規則與 Java 逐筆路徑相同：
+ *   - 欄位一律 TRIM，客戶以 TRIM 後的 sk_cust_id 對應，查無客戶不轉
+ *   - sk_cust_id / extn_ref_no 重複時只取一筆 (Java 路徑同樣只取第一筆)
+ *   - 分行 103 以 RPAD(帳號, 25) 比對 XREF.extn_ref_no (char(25))，有對應則分行改 812、帳號改 TRIM(intn_ref_no)
+ */
+final class PushDownTransferEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushDownTransferEngine.class);
+
+    private final String sourceTable;
+    /** lookup 表 (BANCS_SK_CUST_INFO) 所在 schema，同 schema 時為 null */
+    private final String lookupSchema;
+    private final int parallelDegree;
+
+    PushDownTransferEngine(String sourceTable, String lookupSchema, int parallelDegree) {
+        this.sourceTable = sourceTable;
+        this.lookupSchema = lookupSchema;
+        this.parallelDegree = parallelDegree;
+    }
+
+    /**
+     * 連線所在的資料庫識別：{DB_UNIQUE_NAME, CON_NAME, CURRENT_SCHEMA}。
+     * 兩個 DataSource 前兩項相同即為同一個資料庫。非 Oracle 時會丟出 SQLException。
+     */
+    static String[] identify(DataSource ds) throws SQLException {
+        try (Connection conn = ds.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT SYS_CONTEXT('USERENV', 'DB_UNIQUE_NAME'), " +
+                 "SYS_CONTEXT('USERENV', 'CON_NAME'), SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA') FROM DUAL")) {
+            rs.next();
+            return new String[] { rs.getString(1), rs.getString(2), rs.getString(3) };
+        }
+    }
+
+    /**
+     * 在 conn 上執行所有目標表的 INSERT ... SELECT，不 commit (呼叫端連同 checkpoint 一起 commit / rollback)。
+     * 開了 PARALLEL DML 時 APPEND 寫入的表在 commit 前同一個 transaction 不能再讀，呼叫端 commit 前不要再查這些表。
+     *
+     * @param transferTable TRANSFERACCOUNT 實際表名，null 表示不寫
+     * @param custSetTable  CUSTSETTRANSACCT 實際表名，null 表示不寫
+     * @return 各目標表寫入筆數，依 {@link TargetTable#ordinal()}
+     */
+    long[] run(Connection conn, String transferTable, String custSetTable, TransferMetrics metrics) throws SQLException {
+        conn.setAutoCommit(false);
+        long[] rows = new long[TargetTable.values().length];
+        try (Statement st = conn.createStatement()) {
+            if (parallelDegree > 1) {
+                st.execute("ALTER SESSION ENABLE PARALLEL DML");
+            }
+            if (transferTable != null) {
+                rows[TargetTable.TRANSFERACCOUNT.ordinal()] = insert(st, transferTable, TargetTable.TRANSFERACCOUNT, "0", metrics);
+            }
+            if (custSetTable != null) {
+                rows[TargetTable.CUSTSETTRANSACCT.ordinal()] = insert(st, custSetTable, TargetTable.CUSTSETTRANSACCT, "1", metrics);
+            }
+        }
+        return rows;
+    }
+
+    private long insert(Statement st, String table, TargetTable target, String nomAcctType, TransferMetrics metrics) throws SQLException {
+        long t0 = System.nanoTime();
+        int n = st.executeUpdate(buildInsert(table, target.columns, List.of(nomAcctType)));
+        long elapsed = System.nanoTime() - t0;
+        metrics.pushDown(table).record(elapsed, TimeUnit.NANOSECONDS);
+        metrics.rowsWritten(table).increment(n);
+        if (n > 0) metrics.firstRowProcessed();
+        logger.info("Push-down insert into {}: rows={} in {}ms", table, n, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return n;
+    }
+
+    /**
+     * 關掉 run 開啟的 PARALLEL DML，連線還回 pool 後其他使用者才不會沿用；須在 commit / rollback 之後呼叫。
+     */
+    void resetSession(Connection conn) throws SQLException {
+        if (parallelDegree <= 1) return;
+        try (Statement st = conn.createStatement()) {
+            st.execute("ALTER SESSION DISABLE PARALLEL DML");
+        }
+    }
+
+    String buildInsert(String table, String[] columns, Collection<String> nomAcctTypes) {
+        String hint = parallelDegree > 1 ? "/*+ APPEND PARALLEL(" + parallelDegree + ") */ " : "/*+ APPEND */ ";
+        return "INSERT " + hint + "INTO " + table + " (" + String.join(", ", columns) + ") " + buildSelect(columns, nomAcctTypes);
+    }
+
+    /**
+     * 產生指定 clna_nom_acct_type 目標資料的 SELECT，欄位依 columns 順序、以欄位名為別名。
+     * columns 只能是 TRANSFERACCOUNT / CUSTSETTRANSACCT 的欄位。對帳 ({@link Reconciler}) 也用這段產生應有的資料。
+     */
+    String buildSelect(String[] columns, Collection<String> nomAcctTypes) {
+        StringBuilder sb = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(expression(columns[i])).append(" AS ").append(columns[i]);
+        }
+        sb.append(" FROM (SELECT TRIM(clna_cust_id_no) AS cust_id_no, TRIM(clna_bsb_no) AS bsb_no, TRIM(clna_acct_no) AS acct_no, ")
+          .append("TRIM(clna_nom_acct_type) AS nom_acct_type, TRIM(clna_last_maint_date) AS last_maint_date, ")
+          .append("TRIM(transfer_note) AS transfer_note FROM ").append(sourceTable).append(") a")
+          .append(" JOIN (SELECT TRIM(sk_cust_id) AS sk_cust_id, TRIM(ts_cust_id) AS ts_cust_id, TRIM(cust_id_type) AS cust_id_type, ")
+          .append("ROW_NUMBER() OVER (PARTITION BY TRIM(sk_cust_id) ORDER BY ROWID) AS rn FROM ")
+          .append(qualify("BANCS_SK_CUST_INFO")).append(") c ON c.sk_cust_id = a.cust_id_no AND c.rn = 1")
+          .append(" LEFT JOIN (SELECT extn_ref_no, TRIM(intn_ref_no) AS intn_ref_no, ")
+          .append("ROW_NUMBER() OVER (PARTITION BY extn_ref_no ORDER BY ROWID) AS rn FROM XREF) x")
+          .append(" ON a.bsb_no = '").append(XrefResolver.XREF_BSB_NO).append("' AND x.extn_ref_no = RPAD(a.acct_no, 25) AND x.rn = 1")
+          .append(" WHERE a.nom_acct_type IN (");
+        if (nomAcctTypes.isEmpty()) return sb.append("NULL)").toString();
+        int n = 0;
+        for (String type : nomAcctTypes) {
+            sb.append(n++ == 0 ? "'" : ", '").append(type.replace("'", "''")).append("'");
+        }
+        return sb.append(")").toString();
+    }
+
+    private static String expression(String column) {
+        switch (column.toLowerCase()) {
+            case "userid":       return "c.ts_cust_id";
+            case "useridtype":   return "c.cust_id_type";
+            case "brchid":       return "CASE WHEN x.extn_ref_no IS NOT NULL THEN '" + XrefResolver.MAPPED_BSB_NO + "' ELSE a.bsb_no END";
+            case "accountno":    return "CASE WHEN x.extn_ref_no IS NOT NULL THEN x.intn_ref_no ELSE a.acct_no END";
+            case "updatedate":   return "a.last_maint_date";
+            case "memo":         return "a.transfer_note";
+            case "email":
+            case "receivermemo": return "NULL";
+            case "synchancode":  return "'RB'";
+            default:
+                throw new IllegalArgumentException("No push-down mapping for column " + column);
+        }
+    }
+
+    private String qualify(String table) {
+        return lookupSchema == null ? table : lookupSchema + "." + table;
+    }
+}
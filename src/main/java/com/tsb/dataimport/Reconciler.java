@@ -0,0 +1,312 @@
+package com.tsb.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 來源與目標表對帳：以與轉檔相同的規則 ({@link PushDownTransferEngine#buildSelect}) 在 DB 內產生「應有」的目標資料，
+ * 與目標表實際資料各自依 key 排序串流讀出，merge-join 逐筆比對，記憶體用量與資料量無關。
+ * 非 key 欄位在 DB 端以 ORA_HASH 算成一個 64-bit hash，只有 key 與 hash 會傳回來。
+ *
+ * 差異寫到 DATATRANSFER_RECON_DIFF (run_id, target_table)：
+ *   MISSING - 來源有、目標沒有 (記應有內容的 hash)
+ *   EXTRA   - 目標有、來源沒有 (記目標 ROWID)
+ *   CHANGED - key 相同但內容不同 (記目標 ROWID 與應有內容的 hash)
+ * {@link #repair} 以這份差異為輸入，只補缺少的、更新不同的 (可選擇刪除多出的)，不必整批重轉。
+ */
+final class Reconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(Reconciler.class);
+
+    enum DiffType { MISSING, EXTRA, CHANGED }
+
+    static final String DIFF_TABLE = "DATATRANSFER_RECON_DIFF";
+
+    private static final int DIFF_BATCH = 500;
+    private static final String SEPARATOR = "CHR(31)";
+
+    private final PushDownTransferEngine rules;
+    private final String runId;
+    private final int fetchSize;
+
+    Reconciler(PushDownTransferEngine rules, String runId, int fetchSize) {
+        this.rules = rules;
+        this.runId = runId;
+        this.fetchSize = fetchSize;
+    }
+
+    static final class Result {
+        final String table;
+        long expected;
+        long actual;
+        long matched;
+        long missing;
+        long extra;
+        long changed;
+        long elapsedMs;
+
+        Result(String table) {
+            this.table = table;
+        }
+
+        boolean hasDiff() {
+            return missing + extra + changed > 0;
+        }
+
+        @Override
+        public String toString() {
+            return table + ": expected=" + expected + " actual=" + actual + " matched=" + matched
+                + " missing=" + missing + " extra=" + extra + " changed=" + changed + " elapsed=" + elapsedMs + "ms";
+        }
+    }
+
+    /**
+     * 比對一個目標表，差異寫入 DATATRANSFER_RECON_DIFF (先清掉同 runId 同表的舊差異)。
+     * 差異分批 executeBatch，但兩個游標都關閉後才 commit 一次：
+     * 游標開著時在同一個 session commit (fetch across commit) 容易在大表讀到一半時 ORA-01555。
+     *
+     * @param keys      比對用的 key 欄位 (同 MERGE key)
+     * @param acctTypes 寫入此表的 clna_nom_acct_type
+     */
+    Result compare(Connection conn, TargetTable target, String table, String[] keys,
+                   Collection<String> acctTypes) throws SQLException {
+        long start = System.currentTimeMillis();
+        Result result = new Result(table);
+        conn.setAutoCommit(false);
+        useBinarySort(conn);
+        String[] values = valueColumns(target, keys);
+        String expectedSql = "SELECT " + keyExpression("e", keys) + ", " + hashExpression("e", values) + ", NULL FROM ("
+            + rules.buildSelect(target.columns, acctTypes) + ") e ORDER BY 1 NULLS FIRST, 2";
+        String actualSql = "SELECT " + keyExpression("t", keys) + ", " + hashExpression("t", values)
+            + ", ROWIDTOCHAR(t.ROWID) FROM " + table + " t ORDER BY 1 NULLS FIRST, 2";
+
+        try (PreparedStatement clear = conn.prepareStatement(
+                 "DELETE FROM " + DIFF_TABLE + " WHERE run_id = ? AND target_table = ?")) {
+            clear.setString(1, runId);
+            clear.setString(2, table);
+            clear.executeUpdate();
+        }
+        try (Statement expectedStmt = conn.createStatement();
+             Statement actualStmt = conn.createStatement();
+             PreparedStatement diff = conn.prepareStatement(
+                 "INSERT INTO " + DIFF_TABLE + " (run_id, target_table, diff_type, key_values, row_hash, target_rowid, created_at) "
+                 + "VALUES (?, ?, ?, ?, ?, ?, SYSTIMESTAMP)")) {
+            expectedStmt.setFetchSize(fetchSize);
+            actualStmt.setFetchSize(fetchSize);
+            try (ResultSet expected = expectedStmt.executeQuery(expectedSql);
+                 ResultSet actual = actualStmt.executeQuery(actualSql)) {
+                DiffWriter out = new DiffWriter(diff, table);
+                Side e = new Side(expected);
+                Side a = new Side(actual);
+                while (e.present || a.present) {
+                    int c = !e.present ? 1 : !a.present ? -1 : compareKeys(e.key, a.key);
+                    if (c == 0) {
+                        // key 相同：hash 相同為一致，否則為內容不同
+                        if (e.hash == a.hash) {
+                            result.matched++;
+                        } else {
+                            result.changed++;
+                            out.add(DiffType.CHANGED, e.key, e.hash, a.rowid);
+                        }
+                        result.expected++;
+                        result.actual++;
+                        e.next();
+                        a.next();
+                    } else if (c < 0) {
+                        result.missing++;
+                        result.expected++;
+                        out.add(DiffType.MISSING, e.key, e.hash, null);
+                        e.next();
+                    } else {
+                        result.extra++;
+                        result.actual++;
+                        out.add(DiffType.EXTRA, a.key, a.hash, a.rowid);
+                        a.next();
+                    }
+                }
+                out.flush();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        }
+        result.elapsedMs = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * 依 compare 留下的差異修正目標表，一起 commit：
+     *   MISSING - 以應有內容 INSERT
+     *   CHANGED - 以 ROWID 更新非 key 欄位
+     *   EXTRA   - deleteExtra 時以 ROWID 刪除
+     * 來源有完全相同的重複資料、目標只缺其中幾筆時，MISSING 會把重複的都補上。
+     *
+     * @return {inserted, updated, deleted}
+     */
+    int[] repair(Connection conn, TargetTable target, String table, String[] keys,
+                 Collection<String> acctTypes, boolean deleteExtra) throws SQLException {
+        conn.setAutoCommit(false);
+        useBinarySort(conn);
+        String[] values = valueColumns(target, keys);
+        String expected = "(SELECT e.*, " + keyExpression("e", keys) + " AS key_values, " + hashExpression("e", values)
+            + " AS row_hash FROM (" + rules.buildSelect(target.columns, acctTypes) + ") e)";
+        String diffOf = "FROM " + DIFF_TABLE + " WHERE run_id = ? AND target_table = ? AND diff_type = ?";
+
+        String insert = "INSERT INTO " + table + " (" + String.join(", ", target.columns) + ") SELECT "
+            + prefixed("s", target.columns) + " FROM " + expected + " s WHERE (s.key_values, s.row_hash) IN "
+            + "(SELECT key_values, row_hash " + diffOf + ")";
+
+        StringBuilder update = new StringBuilder("MERGE INTO ").append(table).append(" t USING (SELECT s.*, d.target_rowid, ")
+            .append("ROW_NUMBER() OVER (PARTITION BY d.target_rowid ORDER BY NULL) AS rn FROM ").append(expected)
+            .append(" s JOIN ").append(DIFF_TABLE).append(" d ON d.key_values = s.key_values AND d.row_hash = s.row_hash")
+            .append(" WHERE d.run_id = ? AND d.target_table = ? AND d.diff_type = ?) u")
+            .append(" ON (t.ROWID = CHARTOROWID(u.target_rowid) AND u.rn = 1) WHEN MATCHED THEN UPDATE SET ");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) update.append(", ");
+            update.append("t.").append(values[i]).append(" = u.").append(values[i]);
+        }
+
+        String delete = "DELETE FROM " + table + " WHERE ROWID IN (SELECT CHARTOROWID(target_rowid) " + diffOf + ")";
+
+        int[] counts = new int[3];
+        try {
+            counts[0] = executeForDiff(conn, insert, table, DiffType.MISSING);
+            counts[1] = values.length == 0 ? 0 : executeForDiff(conn, update.toString(), table, DiffType.CHANGED);
+            counts[2] = deleteExtra ? executeForDiff(conn, delete, table, DiffType.EXTRA) : 0;
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        }
+        logger.info("Repaired {}: inserted={} updated={} deleted={}{}", table, counts[0], counts[1], counts[2],
+            deleteExtra ? "" : " (extra rows kept)");
+        return counts;
+    }
+
+    private int executeForDiff(Connection conn, String sql, String table, DiffType type) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, runId);
+            ps.setString(2, table);
+            ps.setString(3, type.name());
+            return ps.executeUpdate();
+        }
+    }
+
+    /** 差異分批寫入 (不 commit，由 compare 在游標關閉後 commit) */
+    private final class DiffWriter {
+        private final PreparedStatement ps;
+        private final String table;
+        private int batched;
+
+        DiffWriter(PreparedStatement ps, String table) {
+            this.ps = ps;
+            this.table = table;
+        }
+
+        void add(DiffType type, String keyValues, long hash, String rowid) throws SQLException {
+            ps.setString(1, runId);
+            ps.setString(2, table);
+            ps.setString(3, type.name());
+            ps.setString(4, keyValues);
+            ps.setLong(5, hash);
+            if (rowid == null) ps.setNull(6, Types.VARCHAR); else ps.setString(6, rowid);
+            ps.addBatch();
+            if (++batched >= DIFF_BATCH) flush();
+        }
+
+        void flush() throws SQLException {
+            if (batched > 0) {
+                ps.executeBatch();
+                batched = 0;
+            }
+        }
+    }
+
+    /** 一邊的串流游標，目前這一筆的 key / hash / ROWID */
+    private static final class Side {
+        private final ResultSet rs;
+        boolean present;
+        String key;
+        long hash;
+        String rowid;
+
+        Side(ResultSet rs) throws SQLException {
+            this.rs = rs;
+            next();
+        }
+
+        void next() throws SQLException {
+            present = rs.next();
+            if (present) {
+                key = rs.getString(1);
+                hash = rs.getLong(2);
+                rowid = rs.getString(3);
+            }
+        }
+    }
+
+    /** 與 SQL 的 ORDER BY key_values NULLS FIRST 相同的順序；同 key 的多筆再依 hash 排序，相同內容的重複資料會兩兩對上 */
+    private static int compareKeys(String key1, String key2) {
+        return key1 == null ? (key2 == null ? 0 : -1) : key2 == null ? 1 : key1.compareTo(key2);
+    }
+
+    /** key 欄位以 CHR(31) 串成一個字串，排序與比對都用它 */
+    private static String keyExpression(String alias, String[] keys) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) sb.append(" || ").append(SEPARATOR).append(" || ");
+            sb.append(alias).append('.').append(keys[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 非 key 欄位的 64-bit hash：兩個不同 seed 的 ORA_HASH (各 32-bit) 組成，
+     * 減去 2^63 讓結果落在 Java long 的範圍。
+     */
+    private static String hashExpression(String alias, String[] values) {
+        if (values.length == 0) return "0";
+        StringBuilder concat = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) concat.append(" || ").append(SEPARATOR).append(" || ");
+            concat.append(alias).append('.').append(values[i]);
+        }
+        return "(ORA_HASH(" + concat + ", 4294967295, 0) * 4294967296 + ORA_HASH(" + concat
+            + ", 4294967295, 1) - 9223372036854775808)";
+    }
+
+    private static String[] valueColumns(TargetTable target, String[] keys) {
+        List<String> keyList = new ArrayList<>();
+        for (String k : keys) keyList.add(k.toLowerCase());
+        return Arrays.stream(target.columns).filter(c -> !keyList.contains(c.toLowerCase())).toArray(String[]::new);
+    }
+
+    private static String prefixed(String alias, String[] columns) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(alias).append('.').append(columns[i]);
+        }
+        return sb.toString();
+    }
+
+    /** Java 端以 String.compareTo 比對 key，DB 端排序需為二進位排序才會一致 */
+    private static void useBinarySort(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("ALTER SESSION SET NLS_SORT = BINARY");
+            st.execute("ALTER SESSION SET NLS_COMP = BINARY");
+        }
+    }
+}
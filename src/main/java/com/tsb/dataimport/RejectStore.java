@@ -0,0 +1,135 @@
+package com.tsb.dataimport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 寫入失敗、由 {@link TransferWriter} 以二分法隔離出來的單筆資料 (reject) 的去處：
+ *   TABLE - 寫到主庫 DATATRANSFER_REJECT，用 writer 的連線，與同頁的正常資料一起 commit
+ *   FILE  - 以 tab 分隔 append 到 rejectFile，各切片共用，寫入後立即 flush
+ *           (resume 重做的那一頁會再寫一次)
+ *
+ * 整個 run 累計的 reject 筆數超過 maxRejects 時丟出例外中止轉檔；maxRejects 小於 0 表示不限制。
+ */
+final class RejectStore implements AutoCloseable {
+
+    enum Mode { NONE, TABLE, FILE }
+
+    static final String REJECT_TABLE = "DATATRANSFER_REJECT";
+
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+
+    private final Mode mode;
+    private final String runId;
+    private final long maxRejects;
+    private final BufferedWriter file;
+    private final AtomicLong rejected = new AtomicLong();
+
+    private RejectStore(Mode mode, BufferedWriter file, String runId, long maxRejects) {
+        this.mode = mode;
+        this.file = file;
+        this.runId = runId;
+        this.maxRejects = maxRejects;
+    }
+
+    /** FILE 模式時開啟 (append) rejectFile */
+    static RejectStore open(Mode mode, Path file, String runId, long maxRejects) throws IOException {
+        BufferedWriter writer = null;
+        if (mode == Mode.FILE) {
+            if (file == null) {
+                throw new IllegalStateException("rejectMode=FILE needs rejectFile");
+            }
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        return new RejectStore(mode, writer, runId, maxRejects);
+    }
+
+    /** 不容錯：任一筆寫入失敗即中止 */
+    static RejectStore none() {
+        return new RejectStore(Mode.NONE, null, null, 0);
+    }
+
+    boolean enabled() {
+        return mode != Mode.NONE;
+    }
+
+    /** 整個 run 目前的 reject 筆數 */
+    long rejected() {
+        return rejected.get();
+    }
+
+    /** 在 writer 的連線上開一個 reject 寫入器；NONE 時回傳 null (不容錯，寫入失敗即中止) */
+    Writer open(Connection conn, String sliceName) throws SQLException {
+        return enabled() ? new Writer(conn, sliceName) : null;
+    }
+
+    final class Writer implements AutoCloseable {
+        private final String sliceName;
+        private final PreparedStatement ps;
+
+        private Writer(Connection conn, String sliceName) throws SQLException {
+            this.sliceName = sliceName;
+            this.ps = mode == Mode.TABLE ? conn.prepareStatement(
+                "INSERT INTO " + REJECT_TABLE + " (run_id, slice_name, target_table, cust_id_no, bsb_no, acct_no, " +
+                "nom_acct_type, error_code, error_message, rejected_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, SYSTIMESTAMP)") : null;
+        }
+
+        /** 記錄一筆 reject；超過 maxRejects 時丟出 IllegalStateException */
+        void reject(String table, ClnaRow row, SQLException error) throws SQLException {
+            String message = error.getMessage() == null ? error.getClass().getSimpleName()
+                : error.getMessage().replace('\n', ' ').replace('\r', ' ').replace('\t', ' ');
+            if (message.length() > MAX_MESSAGE_LENGTH) message = message.substring(0, MAX_MESSAGE_LENGTH);
+            if (ps != null) {
+                ps.setString(1, runId);
+                ps.setString(2, sliceName);
+                ps.setString(3, table);
+                ps.setString(4, row.keyCustId);
+                ps.setString(5, row.keyBsbNo);
+                ps.setString(6, row.keyAcctNo);
+                ps.setString(7, row.nomAcctType);
+                ps.setInt(8, error.getErrorCode());
+                ps.setString(9, message);
+                ps.executeUpdate();
+            } else {
+                String line = String.join("\t", LocalDateTime.now().toString(), String.valueOf(runId), sliceName, table,
+                    row.keyCustId, row.keyBsbNo, row.keyAcctNo, row.nomAcctType, String.valueOf(error.getErrorCode()), message);
+                try {
+                    synchronized (file) {
+                        file.write(line);
+                        file.newLine();
+                        file.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            long total = rejected.incrementAndGet();
+            if (maxRejects >= 0 && total > maxRejects) {
+                throw new IllegalStateException("Rejected rows exceeded maxRejects=" + maxRejects
+                    + ", last: " + table + " (" + row.keyCustId + ", " + row.keyBsbNo + ", " + row.keyAcctNo + ") " + message);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (ps != null) ps.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) file.close();
+    }
+}
@@ -0,0 +1,63 @@
+package com.tsb.dataimport;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Oracle sequence 區塊配號：一次 round trip 以 CONNECT BY 取回 blockSize 個 NEXTVAL，
+ * 之後從記憶體依序發號，取代每筆一次 SELECT seq.NEXTVAL。
+ *
+ * 取回的號碼不保證連續 (RAC / 其他 session 同時取號)，但一定唯一。
+ * sequence 的 CACHE 建議不小於 blockSize。非執行緒安全，每個 writer 各一個。
+ */
+final class SeqBlockAllocator implements AutoCloseable {
+
+    private final PreparedStatement stmt;
+    private final String sequenceName;
+    private final int blockSize;
+    private final long[] block;
+    private int next;
+    private int size;
+    private long allocated;
+
+    SeqBlockAllocator(Connection conn, String sequenceName, int blockSize) throws SQLException {
+        this.sequenceName = sequenceName;
+        this.blockSize = Math.max(1, blockSize);
+        this.block = new long[this.blockSize];
+        this.stmt = conn.prepareStatement("SELECT " + sequenceName + ".NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?");
+        this.stmt.setFetchSize(this.blockSize);
+    }
+
+    long next() throws SQLException {
+        if (next == size) refill();
+        allocated++;
+        return block[next++];
+    }
+
+    private void refill() throws SQLException {
+        stmt.setInt(1, blockSize);
+        int n = 0;
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next() && n < blockSize) {
+                block[n++] = rs.getLong(1);
+            }
+        }
+        if (n == 0) {
+            throw new IllegalStateException("Sequence " + sequenceName + " returned no values");
+        }
+        size = n;
+        next = 0;
+    }
+
+    /** 已發出的號碼數 */
+    long allocated() {
+        return allocated;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        stmt.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.tsb.dataimport;
+
+import java.util.Map;
+
+/**
+ * 一個來源切片 (整表或單一 partition) 的轉檔結果。
+ */
+final class SliceResult {
+
+    final String name;
+    final long rowsRead;
+    /** 各目標表 (實際表名) 的寫入筆數，resume 時含 checkpoint 記錄的先前筆數 */
+    final Map<String, Long> rowsByTable;
+    final long noCustomerRows;
+    /** MERGE / UPSERT 時已存在而略過的筆數 */
+    final long skippedRows;
+    /** 寫入失敗而另存到 reject 的筆數 */
+    final long rejectedRows;
+    final long elapsedMs;
+    /** delta 模式回寫 issync 的筆數 */
+    final long syncFlagged;
+    /** 本切片讀到的最大 clna_last_maint_date */
+    final String maxLastMaintDate;
+
+    SliceResult(String name, long rowsRead, Map<String, Long> rowsByTable,
+                long noCustomerRows, long skippedRows, long rejectedRows, long elapsedMs, long syncFlagged,
+                String maxLastMaintDate) {
+        this.name = name;
+        this.rowsRead = rowsRead;
+        this.rowsByTable = rowsByTable;
+        this.noCustomerRows = noCustomerRows;
+        this.skippedRows = skippedRows;
+        this.rejectedRows = rejectedRows;
+        this.elapsedMs = elapsedMs;
+        this.syncFlagged = syncFlagged;
+        this.maxLastMaintDate = maxLastMaintDate;
+    }
+
+    long rowsPerSecond() {
+        return elapsedMs <= 0 ? rowsRead : rowsRead * 1000 / elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": read=" + rowsRead + " written=" + rowsByTable
+                + " noCustomer=" + noCustomerRows + " skipped=" + skippedRows + " rejected=" + rejectedRows + " syncFlagged=" + syncFlagged + " elapsed=" + elapsedMs + "ms rate=" + rowsPerSecond() + "/s";
+    }
+}
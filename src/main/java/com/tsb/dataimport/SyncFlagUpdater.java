@@ -0,0 +1,44 @@
+package com.tsb.dataimport;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * delta 模式把已轉入的來源資料回寫 issync = 'Y' (JDBC batch)，與目標表寫入在同一個 transaction。
+ *
+ * 只回寫查到客戶且已寫入的資料；查無客戶的維持 'N'，等 BANCS_SK_CUST_INFO 補上後下次 delta 會再帶到，
+ * 寫入失敗而交給 RejectStore 的也維持 'N'，資料修正後下次 delta 會重試。
+ */
+final class SyncFlagUpdater implements AutoCloseable {
+
+    private final PreparedStatement ps;
+    private long flagged;
+
+    SyncFlagUpdater(Connection conn, String sourceTable) throws SQLException {
+        this.ps = conn.prepareStatement("UPDATE " + sourceTable + " SET issync = 'Y' " +
+            "WHERE clna_cust_id_no = ? AND clna_bsb_no = ? AND clna_acct_no = ? AND issync <> 'Y'");
+    }
+
+    void flag(List<ClnaRow> page) throws SQLException {
+        int n = 0;
+        for (ClnaRow row : page) {
+            if (row.tsCustId == null || row.rejected) continue;
+            ps.setString(1, row.keyCustId);
+            ps.setString(2, row.keyBsbNo);
+            ps.setString(3, row.keyAcctNo);
+            ps.addBatch();
+            n++;
+        }
+        if (n > 0) ps.executeBatch();
+        flagged += n;
+    }
+
+    long flagged() { return flagged; }
+
+    @Override
+    public void close() throws SQLException {
+        ps.close();
+    }
+}
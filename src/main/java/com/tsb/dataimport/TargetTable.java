@@ -0,0 +1,115 @@
+package com.tsb.dataimport;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * 可設定在 targetTables 的目標表：欄位、預設的 clna_nom_acct_type 分流，以及 ClnaRow → 欄位的對應。
+ * 實際表名可帶後綴 (如 TRANSFERACCOUNT_TEST)。
+ */
+enum TargetTable {
+
+    TRANSFERACCOUNT(new String[] { "userid", "brchid", "accountno", "updatedate", "memo", "email", "receivermemo", "synchancode" },
+                    new String[0], "0") {
+        @Override
+        void bind(PreparedStatement ps, ClnaRow row, TransferWriter.Route route) throws SQLException {
+            ps.setString(1, row.tsCustId);
+            ps.setString(2, row.targetBsbNo);
+            ps.setString(3, row.targetAcctNo);
+            ps.setString(4, row.lastMaintDate);
+            ps.setString(5, row.transferNote);
+            ps.setNull(6, Types.VARCHAR);
+            ps.setNull(7, Types.VARCHAR);
+            ps.setString(8, "RB");
+        }
+    },
+
+    CUSTSETTRANSACCT(new String[] { "userid", "useridtype", "brchid", "accountno", "updatedate", "memo", "email", "receivermemo" },
+                     new String[0], "1") {
+        @Override
+        void bind(PreparedStatement ps, ClnaRow row, TransferWriter.Route route) throws SQLException {
+            ps.setString(1, row.tsCustId);
+            ps.setString(2, row.custIdType);
+            ps.setString(3, row.targetBsbNo);
+            ps.setString(4, row.targetAcctNo);
+            ps.setString(5, row.lastMaintDate);
+            ps.setString(6, row.transferNote);
+            ps.setNull(7, Types.VARCHAR);
+            ps.setNull(8, Types.VARCHAR);
+        }
+    },
+
+    /**
+     * 常用帳號；UPSERT 時不更新 seq_no。
+     * INSERT 模式 seq_no 由 sequence 以區塊配號，每筆只配一次 (記在 row 上，切批重試時沿用)；
+     * MERGE / UPSERT 模式在 WHEN NOT MATCHED 的 INSERT 直接用 NEXTVAL，這裡 bind NULL。
+     */
+    FREQUENCYACCOUNT(new String[] { "seq_no", "userid", "brchid", "accountno", "memo", "email", "updatedate", "receivermemo", "icaccountno" },
+                     new String[] { "seq_no" }, "0") {
+        @Override
+        void bind(PreparedStatement ps, ClnaRow row, TransferWriter.Route route) throws SQLException {
+            if (route.seq == null) {
+                ps.setNull(1, Types.VARCHAR);
+            } else {
+                if (row.seqNo == 0) row.seqNo = route.seq.next();
+                ps.setString(1, String.valueOf(row.seqNo));
+            }
+            ps.setString(2, row.tsCustId);
+            ps.setString(3, row.targetBsbNo);
+            ps.setString(4, row.targetAcctNo);
+            ps.setString(5, row.transferNote);
+            ps.setNull(6, Types.VARCHAR);
+            ps.setString(7, row.lastMaintDate);
+            ps.setNull(8, Types.VARCHAR);
+            ps.setNull(9, Types.VARCHAR);
+        }
+
+        @Override
+        boolean usesSequence() {
+            return true;
+        }
+    },
+
+    /**
+     * 新網銀常用帳號；is_appointed_account 依 appointedAcctTypes 判斷是否為約定帳號。
+     * 除 email 外都是 NOT NULL，來源 trim 後為空字串 (Oracle 視為 NULL) 時填一個空白。
+     */
+    NB_FREQUENCYACCOUNT_SK(new String[] { "userid", "brchid", "accountno", "memo", "email", "is_appointed_account", "updatedate" },
+                           new String[0], "0", "1") {
+        @Override
+        void bind(PreparedStatement ps, ClnaRow row, TransferWriter.Route route) throws SQLException {
+            ps.setString(1, notEmpty(row.tsCustId));
+            ps.setString(2, notEmpty(row.targetBsbNo));
+            ps.setString(3, notEmpty(row.targetAcctNo));
+            ps.setString(4, notEmpty(row.transferNote));
+            ps.setNull(5, Types.VARCHAR);
+            ps.setString(6, route.appointedAcctTypes.contains(row.nomAcctType) ? "Y" : "N");
+            ps.setString(7, notEmpty(row.lastMaintDate));
+        }
+    };
+
+    final String[] columns;
+    /** 只在 INSERT 時寫入、UPSERT 不更新的欄位 */
+    final String[] insertOnlyColumns;
+    /** 預設寫入此表的 clna_nom_acct_type */
+    final String[] defaultAcctTypes;
+
+    TargetTable(String[] columns, String[] insertOnlyColumns, String... defaultAcctTypes) {
+        this.columns = columns;
+        this.insertOnlyColumns = insertOnlyColumns;
+        this.defaultAcctTypes = defaultAcctTypes;
+    }
+
+    /** 依 columns 的順序 bind 一筆 */
+    abstract void bind(PreparedStatement ps, ClnaRow row, TransferWriter.Route route) throws SQLException;
+
+    boolean usesSequence() {
+        return false;
+    }
+
+    /** NOT NULL 欄位用：null 或空字串改成一個空白 */
+    static String notEmpty(String s) {
+        return s == null || s.isEmpty() ? " " : s;
+    }
+}
@@ -0,0 +1,234 @@
+package com.tsb.dataimport;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 搬檔各階段的 Micrometer 指標：分頁讀取、客戶查詢、XREF、executeBatch、push-down INSERT、commit 的耗時，
+ * 以及各目標表寫入 / reject 筆數、查無客戶而略過的筆數，和 JVM 啟動到第一頁寫入完成的時間 (啟動成本)。
+ *
+ * 批次程式沒有 actuator，預設用 {@link SimpleMeterRegistry}，結束時以 {@link #export(String)}
+ * 寫成 JSON (.json) 或 Prometheus text 格式檔案。
+ */
+@Component
+public class TransferMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferMetrics.class);
+
+    private final MeterRegistry registry;
+
+    final Timer pageFetch;
+    final Counter rowsRead;
+    final Timer custLookup;
+    final Counter custHits;
+    final Counter custMisses;
+    final Timer xref;
+    final Counter xrefMapped;
+    final Counter xrefUnmapped;
+    final Timer commit;
+    final Counter noCustomerRows;
+
+    private final ConcurrentHashMap<String, Timer> executeBatch = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> rowsWritten = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> rowsSkipped = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> rowsRejected = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> pushDown = new ConcurrentHashMap<>();
+    /** JVM 啟動到第一頁寫入完成的毫秒數，尚未寫入時為 -1 */
+    private final AtomicLong firstRowMillis = new AtomicLong(-1);
+
+    public TransferMetrics() {
+        this(new SimpleMeterRegistry());
+    }
+
+    TransferMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.pageFetch = registry.timer("datatransfer.page.fetch");
+        this.rowsRead = registry.counter("datatransfer.rows.read");
+        this.custLookup = registry.timer("datatransfer.lookup");
+        this.custHits = registry.counter("datatransfer.lookup.rows", "result", "hit");
+        this.custMisses = registry.counter("datatransfer.lookup.rows", "result", "miss");
+        this.xref = registry.timer("datatransfer.xref");
+        this.xrefMapped = registry.counter("datatransfer.xref.rows", "result", "mapped");
+        this.xrefUnmapped = registry.counter("datatransfer.xref.rows", "result", "unmapped");
+        this.commit = registry.timer("datatransfer.commit");
+        this.noCustomerRows = registry.counter("datatransfer.rows.dropped", "reason", "no_customer");
+        registry.gauge("datatransfer.first.row.ms", firstRowMillis, AtomicLong::doubleValue);
+    }
+
+    /** JVM 啟動到現在的毫秒數 */
+    static long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    /** 每頁寫完呼叫；只有第一次會記錄 */
+    void firstRowProcessed() {
+        if (firstRowMillis.get() >= 0) return;
+        long ms = sinceJvmStart();
+        if (firstRowMillis.compareAndSet(-1, ms)) {
+            logger.info("Time to first row processed: {}ms after JVM start", ms);
+        }
+    }
+
+    /** JVM 啟動到第一頁寫入完成的毫秒數，尚未寫入時為 -1 */
+    long firstRowMillis() {
+        return firstRowMillis.get();
+    }
+
+    MeterRegistry registry() {
+        return registry;
+    }
+
+    Timer executeBatch(String table) {
+        return executeBatch.computeIfAbsent(table, t -> registry.timer("datatransfer.batch.execute", "table", t));
+    }
+
+    Counter rowsWritten(String table) {
+        return rowsWritten.computeIfAbsent(table, t -> registry.counter("datatransfer.rows.written", "table", t));
+    }
+
+    /** 所有目標表累計寫入筆數 */
+    long rowsWrittenTotal() {
+        long total = 0;
+        for (Counter c : rowsWritten.values()) total += (long) c.count();
+        return total;
+    }
+
+    Counter rowsSkipped(String table) {
+        return rowsSkipped.computeIfAbsent(table, t -> registry.counter("datatransfer.rows.skipped", "table", t));
+    }
+
+    Counter rowsRejected(String table) {
+        return rowsRejected.computeIfAbsent(table, t -> registry.counter("datatransfer.rows.rejected", "table", t));
+    }
+
+    /** push-down 模式每個目標表一句 INSERT ... SELECT 的耗時 */
+    Timer pushDown(String table) {
+        return pushDown.computeIfAbsent(table, t -> registry.timer("datatransfer.pushdown.insert", "table", t));
+    }
+
+    long rowsReadSoFar() {
+        return (long) rowsRead.count();
+    }
+
+    /** commit 並記錄耗時 */
+    void commit(Connection conn) throws SQLException {
+        long t0 = System.nanoTime();
+        conn.commit();
+        commit.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 寫出目前所有指標；path 以 .json 結尾時寫 JSON，否則寫 Prometheus text format。
+     * path 為空時不寫。
+     */
+    void export(String path) throws IOException {
+        if (path == null || path.isBlank()) return;
+        Path file = Paths.get(path);
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (path.toLowerCase(Locale.ROOT).endsWith(".json")) {
+                writeJson(out);
+            } else {
+                writePrometheus(out);
+            }
+        }
+    }
+
+    void writePrometheus(Writer out) throws IOException {
+        for (Meter meter : registry.getMeters()) {
+            Meter.Id id = meter.getId();
+            String name = id.getName().replace('.', '_');
+            String labels = promLabels(id.getTags());
+            if (meter instanceof Timer) {
+                Timer t = (Timer) meter;
+                out.write("# TYPE " + name + "_seconds summary\n");
+                out.write(name + "_seconds_count" + labels + " " + t.count() + "\n");
+                out.write(name + "_seconds_sum" + labels + " " + t.totalTime(TimeUnit.SECONDS) + "\n");
+                out.write(name + "_seconds_max" + labels + " " + t.max(TimeUnit.SECONDS) + "\n");
+            } else if (meter instanceof Counter) {
+                out.write("# TYPE " + name + "_total counter\n");
+                out.write(name + "_total" + labels + " " + ((Counter) meter).count() + "\n");
+            } else {
+                for (Measurement m : meter.measure()) {
+                    out.write(name + "_" + m.getStatistic().name().toLowerCase(Locale.ROOT) + labels + " " + m.getValue() + "\n");
+                }
+            }
+        }
+    }
+
+    void writeJson(Writer out) throws IOException {
+        out.write("{\"meters\":[");
+        boolean firstMeter = true;
+        for (Meter meter : registry.getMeters()) {
+            Meter.Id id = meter.getId();
+            out.write(firstMeter ? "\n" : ",\n");
+            firstMeter = false;
+            out.write("{\"name\":" + jsonString(id.getName()) + ",\"tags\":{");
+            List<Tag> tags = id.getTags();
+            for (int i = 0; i < tags.size(); i++) {
+                if (i > 0) out.write(",");
+                out.write(jsonString(tags.get(i).getKey()) + ":" + jsonString(tags.get(i).getValue()));
+            }
+            out.write("}");
+            if (meter instanceof Timer) {
+                Timer t = (Timer) meter;
+                out.write(",\"count\":" + t.count()
+                    + ",\"totalSeconds\":" + t.totalTime(TimeUnit.SECONDS)
+                    + ",\"maxSeconds\":" + t.max(TimeUnit.SECONDS));
+            } else if (meter instanceof Counter) {
+                out.write(",\"count\":" + ((Counter) meter).count());
+            } else {
+                for (Measurement m : meter.measure()) {
+                    out.write("," + jsonString(m.getStatistic().name().toLowerCase(Locale.ROOT)) + ":" + m.getValue());
+                }
+            }
+            out.write("}");
+        }
+        out.write("\n]}\n");
+    }
+
+    private static String promLabels(List<Tag> tags) {
+        if (tags.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < tags.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(tags.get(i).getKey()).append("=\"")
+              .append(tags.get(i).getValue().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.tsb.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * read → enrich → write 三段管線：
+ *   reader (1 條執行緒) 讀來源分頁 → readQueue → enricher (N 條) 查客戶/XREF → writeQueue → writer (呼叫端執行緒)。
+ *
+ * 兩個 queue 都有上限，另以 semaphore 限制同時在途的頁數，reader 不會無限超前。
+ * writer 依頁序寫入並依 {@link CommitPolicy} commit，enricher 平行處理造成的亂序會先暫存再依序寫出。
+ * run 返回前會等 reader / enricher 執行緒都結束，呼叫端之後關閉 reader 不會與仍在 nextPage 的 reader 執行緒衝突。
+ */
+final class TransferPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferPipeline.class);
+
+    /** 開一個 enricher (各自的 connection)，由 enrich 執行緒呼叫 */
+    interface EnricherFactory {
+        Enricher open() throws SQLException;
+    }
+
+    private static final class Page {
+        final long seq;
+        final List<ClnaRow> rows;
+
+        Page(long seq, List<ClnaRow> rows) {
+            this.seq = seq;
+            this.rows = rows;
+        }
+    }
+
+    private static final Page END = new Page(-1, List.of());
+
+    private final int queueDepth;
+    private final int enrichThreads;
+    private final TransferMetrics metrics;
+
+    TransferPipeline(int queueDepth, int enrichThreads, TransferMetrics metrics) {
+        this.queueDepth = Math.max(1, queueDepth);
+        this.enrichThreads = Math.max(1, enrichThreads);
+        this.metrics = metrics;
+    }
+
+    /**
+     * 跑完整個管線，回傳讀到的來源筆數。任一段失敗時停止其他段並丟出該例外。
+     */
+    long run(ClnaSource reader, EnricherFactory enricherFactory,
+             PageSink sink, Connection writerConn, CommitPolicy commitPolicy,
+             PageListener listener) throws SQLException {
+        BlockingQueue<Page> readQueue = new ArrayBlockingQueue<>(queueDepth);
+        BlockingQueue<Page> writeQueue = new ArrayBlockingQueue<>(queueDepth);
+        Semaphore inFlight = new Semaphore(queueDepth * 2 + enrichThreads);
+        AtomicLong totalPages = new AtomicLong(-1);
+
+        ExecutorService readerPool = Executors.newSingleThreadExecutor(named("transfer-reader"));
+        ExecutorService enrichPool = Executors.newFixedThreadPool(enrichThreads, named("transfer-enrich"));
+        List<Future<?>> stages = new ArrayList<>();
+        try {
+            stages.add(readerPool.submit(() -> {
+                long seq = 0;
+                while (true) {
+                    inFlight.acquire();
+                    List<ClnaRow> rows = reader.nextPage();
+                    if (rows.isEmpty()) break;
+                    readQueue.put(new Page(seq++, rows));
+                }
+                totalPages.set(seq);
+                for (int i = 0; i < enrichThreads; i++) {
+                    readQueue.put(END);
+                }
+                return null;
+            }));
+            for (int i = 0; i < enrichThreads; i++) {
+                stages.add(enrichPool.submit(() -> {
+                    try (Enricher enricher = enricherFactory.open()) {
+                        while (true) {
+                            Page page = readQueue.take();
+                            if (page == END) break;
+                            enricher.enrich(page.rows);
+                            writeQueue.put(page);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            long processed = 0;
+            long next = 0;
+            TreeMap<Long, Page> pending = new TreeMap<>();
+            while (totalPages.get() < 0 || next < totalPages.get()) {
+                Page page = writeQueue.poll(200, TimeUnit.MILLISECONDS);
+                if (page == null) {
+                    checkStages(stages);
+                    continue;
+                }
+                pending.put(page.seq, page);
+                while ((page = pending.remove(next)) != null) {
+                    sink.write(page.rows);
+                    if (commitPolicy.pageWritten(page.rows.size())) metrics.commit(writerConn);
+                    processed += page.rows.size();
+                    reader.recycle(page.rows);
+                    next++;
+                    inFlight.release();
+                    listener.pageCommitted(processed);
+                }
+            }
+            metrics.commit(writerConn);
+            for (Future<?> f : stages) {
+                await(f);
+            }
+            logger.info("Pipeline finished: pages={} enrichThreads={} queueDepth={}", next, enrichThreads, queueDepth);
+            return processed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Transfer pipeline interrupted", e);
+        } finally {
+            readerPool.shutdownNow();
+            enrichPool.shutdownNow();
+            awaitStopped(readerPool, "reader");
+            awaitStopped(enrichPool, "enricher");
+        }
+    }
+
+    /**
+     * 等 pool 的執行緒結束。interrupt 叫不醒正在等 DB 回應的 JDBC 呼叫，只能等它這次呼叫做完；
+     * 呼叫端執行緒本身被 interrupt 時不再等。
+     */
+    private static void awaitStopped(ExecutorService pool, String stage) {
+        try {
+            while (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Waiting for pipeline {} thread to stop", stage);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for pipeline {} thread to stop", stage);
+        }
+    }
+
+    /** 有任何一段已經結束時檢查是否失敗 */
+    private static void checkStages(List<Future<?>> stages) throws SQLException, InterruptedException {
+        for (Future<?> f : stages) {
+            if (f.isDone()) await(f);
+        }
+    }
+
+    private static void await(Future<?> f) throws SQLException, InterruptedException {
+        try {
+            f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException("Transfer pipeline stage failed", cause);
+        }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
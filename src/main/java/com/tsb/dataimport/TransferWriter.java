@@ -0,0 +1,318 @@
+package com.tsb.dataimport;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 依 clna_nom_acct_type 把已查到客戶的資料分流寫入各目標表 ({@link TargetTable})，
+ * 預設 TRANSFERACCOUNT / FREQUENCYACCOUNT 收 "0"、CUSTSETTRANSACCT 收 "1"、NB_FREQUENCYACCOUNT_SK 兩者都收。
+ * 每個目標表累積 batchSize 筆就 bind 並 executeBatch (與分頁大小無關)，頁尾送出剩餘的；commit 由呼叫端決定。
+ *
+ * 有 reject 寫入器時每批在 savepoint 內執行，失敗就 rollback 到 savepoint、對半切開分別重試，
+ * 切到單筆仍失敗的交給 {@link RejectStore} 並標記 {@link ClnaRow#rejected}，其餘照常寫入；正常批次只多一個 savepoint 的成本。
+ * 沒有 reject 寫入器時任一筆失敗即丟出例外。
+ *
+ * 寫入方式 ({@link WriteMode})：
+ *   INSERT - 直接 INSERT
+ *   MERGE  - 以 key 欄位 MERGE，已存在則略過，重跑不會產生重複資料
+ *   UPSERT - 以 key 欄位 MERGE，已存在且內容不同則更新非 key 欄位 (delta 模式帶到的異動資料)
+ * MERGE / UPSERT 以 JDBC batch 執行同一個 MERGE statement，依每筆 update count 統計寫入/略過筆數。
+ */
+final class TransferWriter implements AutoCloseable {
+
+    enum WriteMode { INSERT, MERGE, UPSERT }
+
+    private final List<Route> routes;
+    private final Target[] targets;
+    /** clna_nom_acct_type (單一 ASCII 字元) → 收這一類的目標表，建構時算好，每筆不必再查 Set */
+    private final Target[][] targetsByType = new Target[128][];
+    private final AdaptiveSizer batchSizer;
+    private final TransferMetrics metrics;
+    private final RejectStore.Writer rejects;
+
+    private long noCustomerRows;
+
+    /** 一個目標表的寫入設定 */
+    static final class Route {
+        final TargetTable target;
+        /** 實際表名 (可能帶 _TEST 等後綴) */
+        final String table;
+        /** MERGE / UPSERT 的 key 欄位 */
+        final String[] mergeKeys;
+        /** 寫入此表的 clna_nom_acct_type */
+        final Set<String> acctTypes;
+        /** NB_FREQUENCYACCOUNT_SK 視為約定帳號的 clna_nom_acct_type */
+        final Set<String> appointedAcctTypes;
+        /** {@link TargetTable#usesSequence()} 的表才有 */
+        final String sequenceName;
+        /** 只有 INSERT 模式才有；MERGE / UPSERT 在 SQL 裡取 NEXTVAL */
+        final SeqBlockAllocator seq;
+
+        Route(TargetTable target, String table, String[] mergeKeys, Set<String> acctTypes,
+              Set<String> appointedAcctTypes, String sequenceName, SeqBlockAllocator seq) {
+            this.target = target;
+            this.table = table;
+            this.mergeKeys = mergeKeys;
+            this.acctTypes = acctTypes;
+            this.appointedAcctTypes = appointedAcctTypes;
+            this.sequenceName = sequenceName;
+            this.seq = seq;
+        }
+    }
+
+    /** 單一目標表的 statement、待送出的資料與統計 */
+    private static final class Target {
+        final Route route;
+        final Connection conn;
+        final PreparedStatement ps;
+        final Timer executeTimer;
+        final Counter writtenCounter;
+        final Counter skippedCounter;
+        final Counter rejectedCounter;
+        /** 累積到 batchSize 才 bind，失敗時才能重新切批 */
+        final List<ClnaRow> pending = new ArrayList<>();
+        /** 實際寫入 (INSERT 或 MERGE 有異動) 的筆數，不含略過與 reject */
+        long applied;
+        long skipped;
+        long rejected;
+
+        Target(Connection conn, WriteMode mode, Route route, TransferMetrics metrics) throws SQLException {
+            this.route = route;
+            this.conn = conn;
+            this.ps = conn.prepareStatement(buildSql(mode, route));
+            this.executeTimer = metrics.executeBatch(route.table);
+            this.writtenCounter = metrics.rowsWritten(route.table);
+            this.skippedCounter = metrics.rowsSkipped(route.table);
+            this.rejectedCounter = metrics.rowsRejected(route.table);
+        }
+
+        void execute(AdaptiveSizer sizer, RejectStore.Writer rejects) throws SQLException {
+            if (pending.isEmpty()) return;
+            int batched = pending.size();
+            long t0 = System.nanoTime();
+            if (rejects == null) {
+                tally(executeBatch(pending));
+            } else {
+                executeIsolated(pending, rejects);
+            }
+            long elapsed = System.nanoTime() - t0;
+            // 頁尾送出的零頭不列入量測，以免拉低吞吐量的樣本
+            if (batched >= sizer.current()) sizer.record(batched, elapsed);
+            executeTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            pending.clear();
+        }
+
+        private int[] executeBatch(List<ClnaRow> batch) throws SQLException {
+            try {
+                for (ClnaRow row : batch) {
+                    route.target.bind(ps, row, route);
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            } catch (SQLException | RuntimeException e) {
+                ps.clearBatch();
+                throw e;
+            }
+        }
+
+        /**
+         * 在 savepoint 內執行一批，失敗時 rollback 到 savepoint 後對半重試，直到單筆。
+         * 連線類的錯誤不切批，直接丟出。
+         */
+        private void executeIsolated(List<ClnaRow> batch, RejectStore.Writer rejects) throws SQLException {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                tally(executeBatch(batch));
+                return;
+            } catch (SQLRecoverableException | SQLTransientConnectionException e) {
+                throw e;
+            } catch (SQLException e) {
+                conn.rollback(savepoint);
+                if (batch.size() == 1) {
+                    rejected++;
+                    rejectedCounter.increment();
+                    batch.get(0).rejected = true;
+                    rejects.reject(route.table, batch.get(0), e);
+                    return;
+                }
+            }
+            int half = batch.size() / 2;
+            executeIsolated(batch.subList(0, half), rejects);
+            executeIsolated(batch.subList(half, batch.size()), rejects);
+        }
+
+        private void tally(int[] counts) {
+            int batchSkipped = 0;
+            for (int c : counts) {
+                // SUCCESS_NO_INFO 視為已寫入
+                if (c == 0) batchSkipped++;
+            }
+            skipped += batchSkipped;
+            applied += counts.length - batchSkipped;
+            writtenCounter.increment(counts.length - batchSkipped);
+            if (batchSkipped > 0) skippedCounter.increment(batchSkipped);
+        }
+    }
+
+    /**
+     * @param routes     要寫入的目標表 (其中的配號器由 writer 負責關閉)
+     * @param batchSizer 每次 executeBatch 的筆數
+     * @param rejects    寫入失敗的單筆資料的去處，null 表示不容錯
+     */
+    TransferWriter(Connection conn, WriteMode mode, List<Route> routes, AdaptiveSizer batchSizer,
+                   TransferMetrics metrics, RejectStore.Writer rejects) throws SQLException {
+        this.batchSizer = batchSizer;
+        this.metrics = metrics;
+        this.rejects = rejects;
+        this.routes = routes;
+        this.targets = new Target[routes.size()];
+        try {
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = new Target(conn, mode, routes.get(i), metrics);
+            }
+        } catch (SQLException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        for (int c = 0; c < targetsByType.length; c++) {
+            String type = Codes.ascii(c);
+            targetsByType[c] = Arrays.stream(targets).filter(t -> t.route.acctTypes.contains(type)).toArray(Target[]::new);
+        }
+    }
+
+    static String buildSql(WriteMode mode, Route route) {
+        String table = route.table;
+        TargetTable target = route.target;
+        String[] keys = route.mergeKeys;
+        String[] columns = target.columns;
+        // MERGE 時只有真的 INSERT 才取號，已存在的資料不會用掉配好的號碼
+        Map<String, String> insertExprs = target.usesSequence()
+            ? Map.of(columns[0], route.sequenceName + ".NEXTVAL") : Map.of();
+        switch (mode) {
+            case MERGE:
+                return MergeSqlBuilder.buildMergeInsertSql(table, columns, keys, insertExprs);
+            case UPSERT:
+                return MergeSqlBuilder.buildMergeUpsertSql(table, columns, keys, target.insertOnlyColumns, insertExprs);
+            default:
+                StringBuilder sb = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                    .append(String.join(", ", columns)).append(") VALUES (");
+                for (int i = 0; i < columns.length; i++) {
+                    sb.append(i == 0 ? "?" : ", ?");
+                }
+                return sb.append(")").toString();
+        }
+    }
+
+    void write(List<ClnaRow> page) throws SQLException {
+        for (ClnaRow row : page) {
+            // row 物件會重複使用，先清掉上一頁留下的標記與配號
+            row.rejected = false;
+            row.seqNo = 0;
+            if (row.tsCustId == null) {
+                noCustomerRows++;
+                metrics.noCustomerRows.increment();
+                continue;
+            }
+            String type = row.nomAcctType;
+            if (type != null && type.length() == 1 && type.charAt(0) < targetsByType.length) {
+                for (Target t : targetsByType[type.charAt(0)]) {
+                    add(t, row);
+                }
+            } else {
+                for (Target t : targets) {
+                    if (t.route.acctTypes.contains(type)) add(t, row);
+                }
+            }
+        }
+        for (Target t : targets) {
+            t.execute(batchSizer, rejects);
+        }
+        metrics.firstRowProcessed();
+    }
+
+    private void add(Target t, ClnaRow row) throws SQLException {
+        t.pending.add(row);
+        if (t.pending.size() >= batchSizer.current()) t.execute(batchSizer, rejects);
+    }
+
+    /**
+     * 各目標表的寫入筆數 (不含略過與 reject) 加上 base，依 {@link TargetTable#ordinal()}。
+     *
+     * @param base resume 前已寫入的筆數 (checkpoint)，null 表示 0
+     */
+    long[] rowsByTarget(long[] base) {
+        long[] rows = base == null ? new long[TargetTable.values().length] : base.clone();
+        for (Target t : targets) {
+            rows[t.route.target.ordinal()] += t.applied;
+        }
+        return rows;
+    }
+
+    /** 各目標表 (實際表名) 的寫入筆數 (不含略過與 reject) 加上 base，base 同 {@link #rowsByTarget} */
+    Map<String, Long> rowsByTable(long[] base) {
+        Map<String, Long> rows = new LinkedHashMap<>();
+        for (Target t : targets) {
+            rows.put(t.route.table, t.applied + (base == null ? 0 : base[t.route.target.ordinal()]));
+        }
+        return rows;
+    }
+
+    /** MERGE / UPSERT 時因已存在 (或內容相同) 而未寫入的筆數；INSERT 模式恆為 0 */
+    long skippedRows() {
+        long skipped = 0;
+        for (Target t : targets) {
+            skipped += t.skipped;
+        }
+        return skipped;
+    }
+
+    /** 寫入失敗而交給 {@link RejectStore} 的筆數 */
+    long rejectedRows() {
+        long rejected = 0;
+        for (Target t : targets) {
+            rejected += t.rejected;
+        }
+        return rejected;
+    }
+
+    long noCustomerRows() { return noCustomerRows; }
+
+    AdaptiveSizer batchSizer() { return batchSizer; }
+
+    /** 關閉各表的 statement 與配號器 */
+    @Override
+    public void close() throws SQLException {
+        SQLException first = null;
+        for (Target t : targets) {
+            if (t == null) continue;
+            try {
+                t.ps.close();
+            } catch (SQLException e) {
+                if (first == null) first = e;
+            }
+        }
+        for (Route r : routes) {
+            if (r.seq == null) continue;
+            try {
+                r.seq.close();
+            } catch (SQLException e) {
+                if (first == null) first = e;
+            }
+        }
+        if (first != null) throw first;
+    }
+}
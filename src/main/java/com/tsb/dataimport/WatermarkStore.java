@@ -0,0 +1,50 @@
+package com.tsb.dataimport;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * delta 同步的 watermark (已處理過的最大 clna_last_maint_date)，存在主庫 DATATRANSFER_WATERMARK。
+ */
+final class WatermarkStore {
+
+    static final String WATERMARK_TABLE = "DATATRANSFER_WATERMARK";
+
+    private final DataSource ds;
+
+    WatermarkStore(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /** 尚無紀錄時回傳 null */
+    String load(String jobName) throws SQLException {
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                 "SELECT last_maint_date FROM " + WATERMARK_TABLE + " WHERE job_name = ?")) {
+            ps.setString(1, jobName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /** 只會往前推進，不會把 watermark 改小 */
+    void advance(String jobName, String lastMaintDate) throws SQLException {
+        if (lastMaintDate == null) return;
+        String sql = "MERGE INTO " + WATERMARK_TABLE + " w USING (SELECT ? AS job_name, ? AS last_maint_date FROM DUAL) s " +
+            "ON (w.job_name = s.job_name) " +
+            "WHEN MATCHED THEN UPDATE SET w.last_maint_date = s.last_maint_date, w.updated_at = SYSTIMESTAMP " +
+            "WHERE w.last_maint_date IS NULL OR w.last_maint_date < s.last_maint_date " +
+            "WHEN NOT MATCHED THEN INSERT (job_name, last_maint_date, updated_at) VALUES (s.job_name, s.last_maint_date, SYSTIMESTAMP)";
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, jobName);
+            ps.setString(2, lastMaintDate);
+            ps.executeUpdate();
+            if (!conn.getAutoCommit()) conn.commit();
+        }
+    }
+}
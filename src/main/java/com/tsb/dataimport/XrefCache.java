@@ -0,0 +1,42 @@
+package com.tsb.dataimport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * XREF 轉換結果的 LRU (extn 帳號 → trim 過的 intn_ref_no)，多個 {@link XrefResolver} 共用。
+ * 查無對應以 {@link #NO_MAPPING} 存放，避免同一帳號重查。
+ */
+final class XrefCache {
+
+    /** 快取中表示「XREF 查無對應」，以 reference 比對 */
+    static final String NO_MAPPING = new String("");
+
+    private final Map<String, String> lru;
+    final LongAdder cacheHits = new LongAdder();
+    final LongAdder queried = new LongAdder();
+    final LongAdder mapped = new LongAdder();
+
+    XrefCache(int cacheSize) {
+        int max = Math.max(cacheSize, 0);
+        this.lru = new LinkedHashMap<>(Math.min(max, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    synchronized String get(String acctNo) {
+        return lru.get(acctNo);
+    }
+
+    synchronized void putAll(Map<String, String> entries) {
+        lru.putAll(entries);
+    }
+
+    String describe() {
+        return "cacheHits=" + cacheHits.sum() + " queried=" + queried.sum() + " mapped=" + mapped.sum();
+    }
+}
@@ -0,0 +1,119 @@
+package com.tsb.dataimport;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分行 103 帳號的 XREF 轉換 (extn_ref_no → intn_ref_no，分行改為 812)。
+ *
+ * 一整頁的 103 帳號先查 {@link XrefCache}，剩下的以一次 IN-list 查詢解決；查無對應也會快取，避免重查。
+ * XREF.extn_ref_no 是 char(25)，bind 值先補空白到 25 碼，讓比較直接走索引，不必在 SQL 裡 TRIM。
+ * 每個 connection / 執行緒各一個 resolver，快取可共用。
+ */
+final class XrefResolver implements AutoCloseable {
+
+    static final String XREF_BSB_NO = "103";
+    static final String MAPPED_BSB_NO = "812";
+
+    private static final int REF_WIDTH = 25;
+    private static final int IN_LIST_SIZE = 1000;
+
+    private final Connection conn;
+    private final XrefCache cache;
+    private PreparedStatement stmt;
+
+    XrefResolver(Connection conn, XrefCache cache) {
+        this.conn = conn;
+        this.cache = cache;
+    }
+
+    /**
+     * 對已查到客戶的資料填入 targetBsbNo / targetAcctNo；非 103 或 XREF 查無者維持原值。
+     */
+    void resolve(List<ClnaRow> rows) throws SQLException {
+        List<ClnaRow> pending = null;
+        for (ClnaRow row : rows) {
+            row.targetBsbNo = row.bsbNo;
+            row.targetAcctNo = row.acctNo;
+            if (row.tsCustId == null || !XREF_BSB_NO.equals(row.bsbNo) || row.acctNo == null) continue;
+            String intn = cache.get(row.acctNo);
+            if (intn != null) {
+                cache.cacheHits.increment();
+                apply(row, intn);
+            } else {
+                if (pending == null) pending = new ArrayList<>();
+                pending.add(row);
+            }
+        }
+        if (pending == null) return;
+
+        // padded extn_ref_no → 原帳號
+        Map<String, String> padded = new LinkedHashMap<>(pending.size() * 2);
+        for (ClnaRow row : pending) {
+            padded.putIfAbsent(pad(row.acctNo), row.acctNo);
+        }
+        Map<String, String> found = new HashMap<>(padded.size() * 2);
+        List<String> keys = new ArrayList<>(padded.keySet());
+        for (int from = 0; from < keys.size(); from += IN_LIST_SIZE) {
+            query(keys.subList(from, Math.min(from + IN_LIST_SIZE, keys.size())), padded, found);
+        }
+        cache.queried.add(padded.size());
+        for (String acct : padded.values()) {
+            found.putIfAbsent(acct, XrefCache.NO_MAPPING);
+        }
+        cache.putAll(found);
+        for (ClnaRow row : pending) {
+            apply(row, found.get(row.acctNo));
+        }
+    }
+
+    private void apply(ClnaRow row, String intn) {
+        if (intn == XrefCache.NO_MAPPING) return;
+        row.targetBsbNo = MAPPED_BSB_NO;
+        row.targetAcctNo = intn;
+        cache.mapped.increment();
+    }
+    private void query(List<String> paddedKeys, Map<String, String> padded, Map<String, String> found) throws SQLException {
+        if (stmt == null) {
+            StringBuilder sb = new StringBuilder("SELECT extn_ref_no, intn_ref_no FROM XREF WHERE extn_ref_no IN (");
+            for (int i = 0; i < IN_LIST_SIZE; i++) {
+                sb.append(i == 0 ? "?" : ", ?");
+            }
+            stmt = conn.prepareStatement(sb.append(")").toString());
+            stmt.setFetchSize(IN_LIST_SIZE);
+        }
+        String last = paddedKeys.get(paddedKeys.size() - 1);
+        for (int i = 0; i < IN_LIST_SIZE; i++) {
+            stmt.setString(i + 1, i < paddedKeys.size() ? paddedKeys.get(i) : last);
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String acct = padded.get(rs.getString(1));
+                String intn = rs.getString(2);
+                if (acct == null || intn == null) continue;
+                // 只在進快取時 trim 一次
+                intn = intn.trim();
+                found.putIfAbsent(acct, intn);
+            }
+        }
+    }
+
+    private static String pad(String acct) {
+        if (acct.length() >= REF_WIDTH) return acct;
+        StringBuilder sb = new StringBuilder(REF_WIDTH).append(acct);
+        while (sb.length() < REF_WIDTH) sb.append(' ');
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (stmt != null) stmt.close();
+    }
+}
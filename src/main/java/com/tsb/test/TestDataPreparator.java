@@ -8,8 +8,14 @@ import org.springframework.stereotype.Component;
 import com.tsb.dataimport.DataTransferProperties;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -44,21 +50,16 @@ public class TestDataPreparator {
             return;
         }
         String suffix = testProps.getTestTableSuffix();
-        try (Connection conn = mainDs.getConnection()) {
-            String schema = getSchema(conn);
-            for (String srcTable : tables) {
-                if (srcTable != null && !srcTable.isBlank()) {
-                    copyTableWithData(conn, schema, srcTable, suffix);
-                }
+        try {
+            String schema;
+            try (Connection conn = mainDs.getConnection()) {
+                schema = getSchema(conn);
             }
+            copyTables(schema, tables, suffix);
             logger.info("Test tables prepared: {} with suffix '{}'", tables, suffix);
 
             // 這裡自動同步修改資料轉換目標表為測試表
-            List<String> testTargetTables = tables.stream()
-                    .map(t -> normalizeTestName(t + suffix, suffix))
-                    .collect(Collectors.toList());
-            transferProps.setTargetTables(testTargetTables);
-            logger.info("DataTransferProperties.targetTables updated to {}", testTargetTables);
+            switchTargetTables(tables, suffix);
 
         } catch (SQLException ex) {
             logger.error("Error preparing test tables", ex);
@@ -66,19 +67,85 @@ public class TestDataPreparator {
         }
     }
 
+    /**
+     * 不重建測試表，只把資料轉換目標表切換為既有的測試表 (對帳、resume、delta 等需保留目標表內容的作業用)。
+     */
+    public void useTestTables() {
+        if (!testProps.isPrepareTestData() || testProps.getTablesToCopy() == null || testProps.getTablesToCopy().isEmpty()) {
+            return;
+        }
+        switchTargetTables(testProps.getTablesToCopy(), testProps.getTestTableSuffix());
+    }
+
+    private void switchTargetTables(List<String> tables, String suffix) {
+        List<String> testTargetTables = tables.stream()
+                .filter(t -> t != null && !t.isBlank())
+                .map(t -> normalizeTestName(t + suffix, suffix))
+                .collect(Collectors.toList());
+        transferProps.setTargetTables(testTargetTables);
+        logger.info("DataTransferProperties.targetTables updated to {}", testTargetTables);
+    }
+
     private String getSchema(Connection conn) throws SQLException {
         String schema = conn.getMetaData().getUserName();
         return schema == null ? "" : schema.toUpperCase();
     }
 
+    /**
+     * 同時複製 copyThreads 張表，每張表用自己的連線；任一張失敗則整體失敗。
+     */
+    private void copyTables(String schema, List<String> tables, String suffix) throws SQLException {
+        List<String> srcTables = tables.stream()
+                .filter(t -> t != null && !t.isBlank())
+                .collect(Collectors.toList());
+        int threads = Math.max(1, Math.min(testProps.getCopyThreads(), srcTables.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (String srcTable : srcTables) {
+                futures.add(pool.submit(() -> {
+                    try (Connection conn = mainDs.getConnection()) {
+                        copyTableWithData(conn, schema, srcTable, suffix);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SQLException) throw (SQLException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new IllegalStateException("Test table copy failed", cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Test table copy interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 先以一次 CTAS (NOLOGGING / PARALLEL) 建表並載入資料，之後才建 index 與 constraint，
+     * 避免逐筆維護 index。
+     */
     private void copyTableWithData(Connection conn, String schema, String srcTable, String suffix) throws SQLException {
         String destTable = normalizeTestName(srcTable + suffix, suffix);
+        String mode = testProps.getCopyMode() == null ? "FIRST_ROWS" : testProps.getCopyMode().trim().toUpperCase();
+        long start = System.currentTimeMillis();
 
         dropIfExists(conn, schema, destTable);
-        createEmptyCopy(conn, srcTable, destTable);
+        createCopy(conn, srcTable, destTable, mode);
+        if ("ROWID_RANGE".equals(mode) && testProps.getDataCopyLimit() > 0) {
+            copyRowidRanges(conn, srcTable, destTable, testProps.getDataCopyLimit());
+        }
+        finishLoad(conn, destTable);
         copyIndexes(conn, schema, srcTable, destTable, suffix);
         copyConstraints(conn, schema, srcTable, destTable, suffix);
-        copyTableRows(conn, srcTable, destTable, testProps.getDataCopyLimit());
+        logger.info("Cloned {} to {} ({}) in {}ms", srcTable, destTable, mode, System.currentTimeMillis() - start);
     }
 
     private void dropIfExists(Connection conn, String schema, String table) throws SQLException {
@@ -91,11 +158,90 @@ public class TestDataPreparator {
         }
     }
 
-    private void createEmptyCopy(Connection conn, String srcTable, String destTable) throws SQLException {
-        String sql = "CREATE TABLE " + destTable + " AS SELECT * FROM " + srcTable + " WHERE 1=0";
+    /**
+     * CTAS 建表；依 copyMode 一併帶入資料 (ROWID_RANGE 或 dataCopyLimit <= 0 時只建結構)。
+     */
+    private void createCopy(Connection conn, String srcTable, String destTable, String mode) throws SQLException {
+        int limit = testProps.getDataCopyLimit();
+        String from = srcTable;
+        String where;
+        boolean withData = true;
+        switch (mode) {
+            case "ALL":
+                where = "";
+                break;
+            case "SAMPLE":
+                from = srcTable + " SAMPLE BLOCK (" + BigDecimal.valueOf(testProps.getSamplePercent()).toPlainString() + ")";
+                where = limit > 0 ? " WHERE ROWNUM <= " + limit : "";
+                break;
+            case "ROWID_RANGE":
+                withData = false;
+                where = " WHERE 1=0";
+                break;
+            case "FIRST_ROWS":
+                withData = limit > 0;
+                where = withData ? " WHERE ROWNUM <= " + limit : " WHERE 1=0";
+                break;
+            default:
+                throw new IllegalStateException("Unknown testtable.copy-mode: " + mode);
+        }
+        int parallel = withData ? Math.max(1, testProps.getCopyParallel()) : 1;
+        String sql = "CREATE TABLE " + destTable + " NOLOGGING" + (parallel > 1 ? " PARALLEL " + parallel : "")
+                + " AS SELECT " + (parallel > 1 ? "/*+ PARALLEL(" + parallel + ") */ " : "") + "* FROM " + from + where;
         try (Statement s = conn.createStatement()) {
             s.execute(sql);
-            logger.info("Created table {} (structure copied from {})", destTable, srcTable);
+            logger.info("Created table {} from {} ({}{})", destTable, srcTable, mode, withData ? "" : ", structure only");
+        }
+    }
+
+    /**
+     * 依 USER_EXTENTS 把來源表切成 ROWID 區段，平均挑 copyChunks 段各取一部分，
+     * 取得分散於整張表的樣本；每段以 ROWID range scan 讀取，取夠就停。
+     * 取不到 extent (非本 schema 的表等) 時改取前 limit 筆。
+     */
+    private void copyRowidRanges(Connection conn, String srcTable, String destTable, int limit) throws SQLException {
+        List<String[]> ranges = new ArrayList<>();
+        String sql = "SELECT ROWIDTOCHAR(DBMS_ROWID.ROWID_CREATE(1, o.data_object_id, e.relative_fno, e.block_id, 0)), "
+                + "ROWIDTOCHAR(DBMS_ROWID.ROWID_CREATE(1, o.data_object_id, e.relative_fno, e.block_id + e.blocks - 1, 32767)) "
+                + "FROM USER_EXTENTS e JOIN USER_OBJECTS o ON o.object_name = e.segment_name AND o.object_type = 'TABLE' "
+                + "WHERE e.segment_name = ? AND e.segment_type = 'TABLE' ORDER BY e.relative_fno, e.block_id";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, srcTable.toUpperCase());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ranges.add(new String[] { rs.getString(1), rs.getString(2) });
+                }
+            }
+        }
+        if (ranges.isEmpty()) {
+            logger.info("No extents found for {}, copying first {} rows instead", srcTable, limit);
+            try (Statement s = conn.createStatement()) {
+                int rows = s.executeUpdate(String.format("INSERT INTO %s SELECT * FROM %s WHERE ROWNUM <= %d", destTable, srcTable, limit));
+                logger.info("Copied {} rows from {} to {}", rows, srcTable, destTable);
+            }
+            return;
+        }
+        int chunks = Math.max(1, Math.min(testProps.getCopyChunks(), ranges.size()));
+        int perChunk = (limit + chunks - 1) / chunks;
+        long copied = 0;
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO " + destTable + " SELECT * FROM " + srcTable
+                + " WHERE ROWID BETWEEN CHARTOROWID(?) AND CHARTOROWID(?) AND ROWNUM <= ?")) {
+            for (int c = 0; c < chunks && copied < limit; c++) {
+                String[] range = ranges.get((int) ((long) c * ranges.size() / chunks));
+                ps.setString(1, range[0]);
+                ps.setString(2, range[1]);
+                ps.setInt(3, (int) Math.min(perChunk, limit - copied));
+                copied += ps.executeUpdate();
+            }
+        }
+        logger.info("Copied {} rows from {} to {} across {} ROWID ranges", copied, srcTable, destTable, chunks);
+    }
+
+    /** 載入完成後恢復 LOGGING、取消 PARALLEL，之後轉檔寫入測試表時不會走平行 DML */
+    private void finishLoad(Connection conn, String destTable) throws SQLException {
+        try (Statement s = conn.createStatement()) {
+            s.execute("ALTER TABLE " + destTable + " LOGGING");
+            s.execute("ALTER TABLE " + destTable + " NOPARALLEL");
         }
     }
 
@@ -139,17 +285,6 @@ public class TestDataPreparator {
         }
     }
 
-    private void copyTableRows(Connection conn, String srcTable, String destTable, int limit) {
-        if (limit <= 0) return;
-        String sql = String.format("INSERT INTO %s SELECT * FROM %s WHERE ROWNUM <= %d", destTable, srcTable, limit);
-        try (Statement s = conn.createStatement()) {
-            int rows = s.executeUpdate(sql);
-            logger.info("Copied {} rows from {} to {}", rows, srcTable, destTable);
-        } catch (SQLException ex) {
-            logger.warn("Copy rows failed for {}: {}", srcTable, ex.getMessage());
-        }
-    }
-
     private boolean tableExists(Connection conn, String schema, String table) throws SQLException {
         String sql = "SELECT COUNT(*) FROM ALL_TABLES WHERE OWNER = ? AND TABLE_NAME = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
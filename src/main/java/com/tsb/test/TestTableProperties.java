@@ -13,6 +13,22 @@ public class TestTableProperties {
     private List<String> tablesToCopy;
     /** 測試表的後綴字串 */
     private String testTableSuffix = "_TEST";
+    /**
+     * 取資料的方式：
+     * FIRST_ROWS  - 前 dataCopyLimit 筆
+     * SAMPLE      - SAMPLE BLOCK (samplePercent)，dataCopyLimit > 0 時再限制筆數
+     * ROWID_RANGE - 在 copyChunks 個 ROWID 區段 (extent) 各取 dataCopyLimit / copyChunks 筆，分散取自整張表
+     * ALL         - 全表
+     */
+    private String copyMode = "FIRST_ROWS";
+    /** SAMPLE 模式的取樣百分比 */
+    private double samplePercent = 1.0;
+    /** ROWID_RANGE 模式的區段數 */
+    private int copyChunks = 16;
+    /** 同時複製的表數 */
+    private int copyThreads = 4;
+    /** CTAS 的 PARALLEL degree，1 表示不平行 */
+    private int copyParallel = 4;
 
     public boolean isPrepareTestData() { return prepareTestData; }
     public void setPrepareTestData(boolean prepareTestData) { this.prepareTestData = prepareTestData; }
@@ -25,4 +41,19 @@ public class TestTableProperties {
 
     public String getTestTableSuffix() { return testTableSuffix; }
     public void setTestTableSuffix(String testTableSuffix) { this.testTableSuffix = testTableSuffix; }
+
+    public String getCopyMode() { return copyMode; }
+    public void setCopyMode(String copyMode) { this.copyMode = copyMode; }
+
+    public double getSamplePercent() { return samplePercent; }
+    public void setSamplePercent(double samplePercent) { this.samplePercent = samplePercent; }
+
+    public int getCopyChunks() { return copyChunks; }
+    public void setCopyChunks(int copyChunks) { this.copyChunks = copyChunks; }
+
+    public int getCopyThreads() { return copyThreads; }
+    public void setCopyThreads(int copyThreads) { this.copyThreads = copyThreads; }
+
+    public int getCopyParallel() { return copyParallel; }
+    public void setCopyParallel(int copyParallel) { this.copyParallel = copyParallel; }
 }
\ No newline at end of file
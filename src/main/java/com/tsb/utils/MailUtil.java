@@ -4,10 +4,16 @@ import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.SimpleMailMessage;
 
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MailUtil {
 
+    // 同一個設定檔只讀一次、只建一個 sender (JavaMailSenderImpl 可多執行緒共用)
+    private static final ConcurrentHashMap<String, JavaMailSenderImpl> SENDERS = new ConcurrentHashMap<>();
+
     public static JavaMailSenderImpl createMailSender(String propPath) throws Exception {
         Properties props = new Properties();
         try (FileInputStream fis = new FileInputStream(propPath)) {
@@ -22,8 +28,21 @@ public class MailUtil {
         return mailSender;
     }
 
+    /** 以設定檔路徑快取的 sender，第一次呼叫時建立 */
+    public static JavaMailSenderImpl getMailSender(String propPath) {
+        return SENDERS.computeIfAbsent(propPath, p -> {
+            try {
+                return createMailSender(p);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot create mail sender from " + p, e);
+            }
+        });
+    }
+
     public static void sendMail(String propPath, String to, String subject, String content) throws Exception {
-        JavaMailSenderImpl mailSender = createMailSender(propPath);
+        JavaMailSenderImpl mailSender = getMailSender(propPath);
         SimpleMailMessage message = new SimpleMailMessage();
         message.setTo(to);
         message.setSubject(subject);
@@ -31,4 +50,4 @@ public class MailUtil {
         message.setFrom(mailSender.getUsername());
         mailSender.send(message);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.tsb.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "notification")
+public class NotificationProperties {
+    /** 是否寄送通知信 */
+    private boolean enabled = false;
+    /** 舊的 mail.properties 路徑 (mail.host / mail.port / mail.username / mail.password)，設定時優先使用 */
+    private String propertiesFile;
+    /** SMTP 主機與 port，測試時可指向本機的假 SMTP server (如 MailHog / GreenMail 的 localhost:1025) */
+    private String host = "localhost";
+    private int port = 25;
+    private String username;
+    private String password;
+    private String protocol = "smtp";
+    /** 其他 JavaMail 設定，例如 mail.smtp.auth、mail.smtp.starttls.enable */
+    private Map<String, String> properties = new LinkedHashMap<>();
+    /** 寄件者，未設定時用 username */
+    private String from;
+    /** 收件者 */
+    private List<String> to;
+    /** 主旨前綴 */
+    private String subjectPrefix = "[AppointedAcctProcess]";
+    /** 進度 / 警告事件累積多久合併寄一封 (秒)；失敗事件會立即寄出 */
+    private int digestSeconds = 600;
+    /** 關閉時等待尚未寄出的信的最長時間 (秒) */
+    private int shutdownWaitSeconds = 30;
+
+    // === getter/setter ===
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public String getPropertiesFile() { return propertiesFile; }
+    public void setPropertiesFile(String propertiesFile) { this.propertiesFile = propertiesFile; }
+    public String getHost() { return host; }
+    public void setHost(String host) { this.host = host; }
+    public int getPort() { return port; }
+    public void setPort(int port) { this.port = port; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+    public String getProtocol() { return protocol; }
+    public void setProtocol(String protocol) { this.protocol = protocol; }
+    public Map<String, String> getProperties() { return properties; }
+    public void setProperties(Map<String, String> properties) { this.properties = properties; }
+    public String getFrom() { return from; }
+    public void setFrom(String from) { this.from = from; }
+    public List<String> getTo() { return to; }
+    public void setTo(List<String> to) { this.to = to; }
+    public String getSubjectPrefix() { return subjectPrefix; }
+    public void setSubjectPrefix(String subjectPrefix) { this.subjectPrefix = subjectPrefix; }
+    public int getDigestSeconds() { return digestSeconds; }
+    public void setDigestSeconds(int digestSeconds) { this.digestSeconds = digestSeconds; }
+    public int getShutdownWaitSeconds() { return shutdownWaitSeconds; }
+    public void setShutdownWaitSeconds(int shutdownWaitSeconds) { this.shutdownWaitSeconds = shutdownWaitSeconds; }
+}
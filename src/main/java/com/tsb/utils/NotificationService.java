@@ -0,0 +1,195 @@
+package com.tsb.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 轉檔通知信：mail sender 只建一次，信件一律交給背景執行緒寄送，呼叫端 (轉檔迴圈) 不會被 SMTP 延遲卡住。
+ *
+ * 進度 / 警告事件先累積，每 digestSeconds 合併成一封摘要信；失敗事件會讓目前的摘要立即寄出。
+ * 結束時以 {@link #runFinished} 寄出執行統計 (連同尚未寄出的事件)。寄送失敗只記 log，不影響轉檔。
+ * 關閉 (Spring context 結束) 時最多等 shutdownWaitSeconds 把排隊中的信寄完。
+ */
+@Component
+public class NotificationService implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
+
+    /** 摘要信最多保留的事件數，超過只計數 */
+    private static final int MAX_EVENTS = 500;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    enum Level { PROGRESS, WARNING, FAILURE }
+
+    private final NotificationProperties props;
+    private final JavaMailSenderImpl sender;
+    private final ScheduledExecutorService executor;
+
+    // 尚未寄出的事件，以 this 同步
+    private final List<String> events = new ArrayList<>();
+    private int droppedEvents;
+    private int failures;
+
+    public NotificationService(NotificationProperties props) {
+        this.props = props;
+        if (!props.isEnabled() || props.getTo() == null || props.getTo().isEmpty()) {
+            this.sender = null;
+            this.executor = null;
+            return;
+        }
+        this.sender = createSender(props);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-mail");
+            t.setDaemon(true);
+            return t;
+        });
+        int digest = Math.max(1, props.getDigestSeconds());
+        executor.scheduleWithFixedDelay(this::sendDigest, digest, digest, TimeUnit.SECONDS);
+        logger.info("Notification mail enabled: {}:{} to {}", sender.getHost(), sender.getPort(), props.getTo());
+    }
+
+    public boolean isEnabled() {
+        return sender != null;
+    }
+
+    public void progress(String message) {
+        add(Level.PROGRESS, message);
+    }
+
+    public void warning(String message) {
+        add(Level.WARNING, message);
+    }
+
+    /** 記錄失敗並立即寄出目前的摘要 */
+    public void failure(String message, Throwable error) {
+        if (!isEnabled()) return;
+        StringWriter trace = new StringWriter();
+        if (error != null) error.printStackTrace(new PrintWriter(trace));
+        add(Level.FAILURE, error == null ? message : message + ": " + error + "\n" + trace);
+        submit(this::sendDigest);
+    }
+
+    /** 執行結束：寄出統計，尚未寄出的事件附在後面 */
+    public void runFinished(String subject, String body) {
+        if (!isEnabled()) return;
+        submit(() -> {
+            StringBuilder text = new StringBuilder(body);
+            String pending = drainEvents();
+            if (pending != null) text.append("\n\n---- events ----\n").append(pending);
+            send(subject, text.toString());
+        });
+    }
+
+    private void add(Level level, String message) {
+        if (!isEnabled()) return;
+        synchronized (this) {
+            if (level == Level.FAILURE) failures++;
+            if (events.size() >= MAX_EVENTS) {
+                droppedEvents++;
+                return;
+            }
+            events.add(LocalTime.now().format(TIME) + " " + level + " " + message);
+        }
+    }
+
+    /** 取出所有未寄出的事件，沒有時回傳 null */
+    private String drainEvents() {
+        synchronized (this) {
+            if (events.isEmpty() && droppedEvents == 0) return null;
+            StringBuilder sb = new StringBuilder();
+            for (String e : events) {
+                sb.append(e).append('\n');
+            }
+            if (droppedEvents > 0) sb.append("(").append(droppedEvents).append(" more events not listed)\n");
+            events.clear();
+            droppedEvents = 0;
+            return sb.toString();
+        }
+    }
+
+    private void sendDigest() {
+        int failed;
+        synchronized (this) {
+            failed = failures;
+            failures = 0;
+        }
+        String text = drainEvents();
+        if (text == null) return;
+        send(failed > 0 ? "FAILED (" + failed + ")" : "Progress", text);
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            // 已在關閉中
+            logger.warn("Notification dropped: {}", e.toString());
+        }
+    }
+
+    private void send(String subject, String text) {
+        try {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(props.getTo().toArray(new String[0]));
+            message.setFrom(props.getFrom() != null ? props.getFrom() : sender.getUsername());
+            message.setSubject(props.getSubjectPrefix() + " " + subject);
+            message.setText(text);
+            long t0 = System.currentTimeMillis();
+            sender.send(message);
+            logger.info("Notification mail sent: {} ({}ms)", subject, System.currentTimeMillis() - t0);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to send notification mail '{}': {}", subject, e.getMessage());
+        }
+    }
+
+    private static JavaMailSenderImpl createSender(NotificationProperties props) {
+        if (props.getPropertiesFile() != null && !props.getPropertiesFile().isBlank()) {
+            return MailUtil.getMailSender(props.getPropertiesFile());
+        }
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost(props.getHost());
+        sender.setPort(props.getPort());
+        sender.setProtocol(props.getProtocol());
+        sender.setUsername(props.getUsername());
+        sender.setPassword(props.getPassword());
+        Properties javaMail = new Properties();
+        if (props.getProperties() != null) javaMail.putAll(props.getProperties());
+        // SMTP 沒回應時不要讓寄信執行緒一直卡住
+        javaMail.putIfAbsent("mail.smtp.connectiontimeout", "10000");
+        javaMail.putIfAbsent("mail.smtp.timeout", "10000");
+        javaMail.putIfAbsent("mail.smtp.writetimeout", "10000");
+        sender.setJavaMailProperties(javaMail);
+        return sender;
+    }
+
+    /** 寄出剩下的摘要，等排隊中的信寄完 */
+    @Override
+    public void close() {
+        if (executor == null) return;
+        submit(this::sendDigest);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Math.max(1, props.getShutdownWaitSeconds()), TimeUnit.SECONDS)) {
+                logger.warn("Notification mails still pending after {}s, giving up", props.getShutdownWaitSeconds());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
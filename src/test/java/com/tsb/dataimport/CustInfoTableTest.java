@@ -0,0 +1,130 @@
+package com.tsb.dataimport;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustInfoTableTest {
+
+    @Test
+    void hitFillsTsCustIdAndType() {
+        CustInfoTable table = new CustInfoTable(10);
+        assertTrue(table.put("A123456789", "T000000001", "01"));
+
+        ClnaRow row = new ClnaRow();
+        assertTrue(table.fill("A123456789", row));
+        assertEquals("T000000001", row.tsCustId);
+        assertEquals("01", row.custIdType);
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void missLeavesRowUntouched() {
+        CustInfoTable table = new CustInfoTable(10);
+        table.put("A123456789", "T000000001", "01");
+
+        ClnaRow row = new ClnaRow();
+        assertFalse(table.fill("B123456789", row));
+        assertFalse(table.fill("A12345678", row));
+        assertFalse(table.fill(null, row));
+        assertFalse(table.fill("A1234567890X", row));
+        assertNull(row.tsCustId);
+        assertNull(row.custIdType);
+    }
+
+    @Test
+    void collidingKeysAreProbedAndKeptApart() {
+        // "Aa" / "BB" 的 String.hashCode 相同，組合後四個 key 落在同一個 slot
+        String[] keys = {"AaAa", "AaBB", "BBAa", "BBBB"};
+        CustInfoTable table = new CustInfoTable(1);
+        for (int i = 0; i < keys.length; i++) {
+            assertTrue(table.put(keys[i], "T" + i, "0" + i));
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            ClnaRow row = new ClnaRow();
+            assertTrue(table.fill(keys[i], row));
+            assertEquals("T" + i, row.tsCustId);
+            assertEquals("0" + i, row.custIdType);
+        }
+        assertFalse(table.fill("AaAaAa", new ClnaRow()));
+    }
+
+    @Test
+    void fillsUpToLoadFactorThenRejects() {
+        // 容量 16、load factor 0.7：第 13 筆才會超出
+        CustInfoTable table = new CustInfoTable(1);
+        int n = 0;
+        while (n < 12) {
+            assertTrue(table.put(String.format("K%010d", n), "T" + n, null));
+            n++;
+        }
+        for (int i = 0; i < n; i++) {
+            ClnaRow row = new ClnaRow();
+            assertTrue(table.fill(String.format("K%010d", i), row));
+            assertEquals("T" + i, row.tsCustId);
+            assertNull(row.custIdType);
+        }
+        assertThrows(IllegalStateException.class, () -> table.put("OVERFLOW", "T", null));
+    }
+
+    @Test
+    void duplicateKeyKeepsFirstRow() {
+        CustInfoTable table = new CustInfoTable(10);
+        assertTrue(table.put("A123", "FIRST", "01"));
+        assertFalse(table.put("A123", "SECOND", "02"));
+
+        ClnaRow row = new ClnaRow();
+        assertTrue(table.fill("A123", row));
+        assertEquals("FIRST", row.tsCustId);
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void paddedCharKeysMatchTrimmedEntries() {
+        CustInfoTable table = new CustInfoTable(10);
+        table.put("A123", "T1", "01");
+        table.put("A1234567890", "T2", "02");
+
+        ClnaRow row = new ClnaRow();
+        assertTrue(table.fill("A123       ", row));
+        assertEquals("T1", row.tsCustId);
+        assertTrue(table.fill("A123", row));
+        assertEquals("T1", row.tsCustId);
+        assertTrue(table.fill("A1234567890", row));
+        assertEquals("T2", row.tsCustId);
+        assertTrue(table.fill("A1234567890  ", row));
+        assertEquals("T2", row.tsCustId);
+
+        // 短 key 以空白補位，不會與前綴相同的長 key 混淆
+        assertFalse(table.fill("A12", new ClnaRow()));
+        assertFalse(table.fill("A1234", new ClnaRow()));
+    }
+
+    @Test
+    void overWidthValuesAreNotStored() {
+        CustInfoTable table = new CustInfoTable(10);
+        assertFalse(table.put("A12345678901", "T", "01"));
+        assertFalse(table.put("A123", "T12345678901", "01"));
+        assertFalse(table.put("A123", "T", "012"));
+        assertFalse(table.put(null, "T", "01"));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void typeStringIsSharedAcrossRows() {
+        CustInfoTable table = new CustInfoTable(10);
+        table.put("A1", "T1", "01");
+        table.put("A2", "T2", new String("01"));
+        table.put("A3", "T3", "");
+
+        ClnaRow r1 = new ClnaRow();
+        ClnaRow r2 = new ClnaRow();
+        ClnaRow r3 = new ClnaRow();
+        table.fill("A1", r1);
+        table.fill("A2", r2);
+        table.fill("A3", r3);
+        assertSame(r1.custIdType, r2.custIdType);
+        assertEquals("", r3.custIdType);
+    }
+}
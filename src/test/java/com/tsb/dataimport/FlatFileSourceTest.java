@@ -0,0 +1,148 @@
+package com.tsb.dataimport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatFileSourceTest {
+
+    private static final Charset MS950 = Charset.forName("MS950");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fixedRecordsAreSlicedOnByteOffsets() throws Exception {
+        // 中文 transfer_note 在 UTF-8 下每字 3 bytes，欄位寬度仍以 byte 計
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(fixed(StandardCharsets.UTF_8, "A123456789", "103", "0001234567890123", "SAV", "A",
+            "20240105", "0001", "00001", "1", "約定轉帳備註測試", "N"));
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.write(fixed(StandardCharsets.UTF_8, "B987654321", "7", "42", "SAV", "A",
+            "20240210", "0001", "00001", "0", "note", "Y"));
+        Path file = write("clna.dat", out.toByteArray());
+
+        try (FlatFileSource source = open(file, FlatFileSource.Format.FIXED, StandardCharsets.UTF_8, 0, 1)) {
+            List<ClnaRow> page = source.nextPage();
+            assertEquals(2, page.size());
+            ClnaRow first = page.get(0);
+            assertEquals("A123456789", first.custIdNo);
+            assertEquals("103", first.bsbNo);
+            assertEquals("0001234567890123", first.acctNo);
+            assertEquals("20240105", first.lastMaintDate);
+            assertEquals("1", first.nomAcctType);
+            assertEquals("約定轉帳備註測試", first.transferNote);
+
+            ClnaRow second = page.get(1);
+            assertEquals("B987654321", second.custIdNo);
+            assertEquals("7", second.bsbNo);
+            assertEquals("42", second.acctNo);
+            assertEquals("20240210", second.lastMaintDate);
+            assertEquals("0", second.nomAcctType);
+            assertEquals("note", second.transferNote);
+            assertEquals("20240210", source.maxLastMaintDate());
+            assertTrue(source.nextPage().isEmpty());
+        }
+    }
+
+    @Test
+    void delimitedNoteMayContainDelimiterTrailByte() throws Exception {
+        // MS950 的「四」編碼為 0xA5 0x7C，第二個 byte 就是 '|'
+        assertEquals('|', "四".getBytes(MS950)[1]);
+        String content = "A123456789|103|0001234567890123|SAV|A|20240105|0001|00001|1|第四期約定|N\r\n"
+            + "\n"
+            + "B987654321|007|42|SAV|A|20240210|0001|00001|0||Y\n";
+        Path file = write("clna.txt", content.getBytes(MS950));
+
+        try (FlatFileSource source = open(file, FlatFileSource.Format.DELIMITED, MS950, 0, 1)) {
+            List<ClnaRow> page = source.nextPage();
+            assertEquals(2, page.size());
+            ClnaRow first = page.get(0);
+            assertEquals("A123456789", first.custIdNo);
+            assertEquals("103", first.bsbNo);
+            assertEquals("1", first.nomAcctType);
+            assertEquals("第四期約定", first.transferNote);
+
+            ClnaRow second = page.get(1);
+            assertEquals("B987654321", second.custIdNo);
+            assertEquals("007", second.bsbNo);
+            assertEquals("42", second.acctNo);
+            assertNull(second.transferNote);
+        }
+    }
+
+    @Test
+    void chunksSplitOnRecordBoundaries() throws Exception {
+        int records = 1001;
+        ByteArrayOutputStream fixed = new ByteArrayOutputStream();
+        StringBuilder delimited = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            String custId = String.format("C%010d", i);
+            String note = "備註" + i;
+            fixed.write(fixed(StandardCharsets.UTF_8, custId, "001", String.valueOf(i), "SAV", "A",
+                "20240101", "0001", "00001", "1", note, "N"));
+            if (i < records - 1) fixed.write('\n');
+            delimited.append(custId).append("|001|").append(i).append("|SAV|A|20240101|0001|00001|1|")
+                .append(note).append("|N\n");
+        }
+        Path fixedFile = write("clna.dat", fixed.toByteArray());
+        Path delimitedFile = write("clna.txt", delimited.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(records, readAllChunks(fixedFile, FlatFileSource.Format.FIXED, 3));
+        assertEquals(records, readAllChunks(delimitedFile, FlatFileSource.Format.DELIMITED, 3));
+        assertEquals(records, FlatFileSource.estimateRecords(fixedFile, FlatFileSource.Format.FIXED));
+    }
+
+    /** 逐段讀完，檢查每筆只出現一次且欄位沒有錯位，回傳總筆數 */
+    private static int readAllChunks(Path file, FlatFileSource.Format format, int chunkCount) throws Exception {
+        Set<String> seen = new HashSet<>();
+        int count = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            try (FlatFileSource source = open(file, format, StandardCharsets.UTF_8, chunk, chunkCount)) {
+                for (List<ClnaRow> page = source.nextPage(); !page.isEmpty(); page = source.nextPage()) {
+                    for (ClnaRow row : page) {
+                        int i = Integer.parseInt(row.custIdNo.substring(1));
+                        assertTrue(seen.add(row.custIdNo), "duplicate " + row.custIdNo);
+                        assertEquals(String.valueOf(i), row.acctNo);
+                        assertEquals("備註" + i, row.transferNote);
+                        count++;
+                    }
+                    source.recycle(page);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static FlatFileSource open(Path file, FlatFileSource.Format format, Charset noteCharset,
+                                       int chunkNo, int chunkCount) throws Exception {
+        return FlatFileSource.open(file, format, '|', noteCharset, chunkNo, chunkCount, 64, new TransferMetrics());
+    }
+
+    private Path write(String name, byte[] content) throws Exception {
+        Path file = dir.resolve(name);
+        Files.write(file, content);
+        return file;
+    }
+
+    /** 以 byte 為單位補空白到 FIELD_WIDTHS */
+    private static byte[] fixed(Charset charset, String... fields) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < fields.length; i++) {
+            byte[] bytes = fields[i].getBytes(charset);
+            out.write(bytes, 0, bytes.length);
+            for (int j = bytes.length; j < FlatFileSource.FIELD_WIDTHS[i]; j++) out.write(' ');
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.tsb.utils;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 以 GreenMail (本機 SMTP，port 3025) 驗證通知信：失敗立即寄出、進度合併成摘要、sender 快取。
+ */
+class NotificationServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Test
+    void failureIsSentImmediately() throws Exception {
+        // 摘要間隔設很長，收到信只可能是 failure 觸發的
+        try (NotificationService service = new NotificationService(props(3600))) {
+            service.failure("DataTransfer failed", new IllegalStateException("boom"));
+            assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        }
+        MimeMessage[] messages = greenMail.getReceivedMessages();
+        assertEquals(1, messages.length);
+        assertTrue(messages[0].getSubject().startsWith("[test] FAILED (1)"));
+        String body = GreenMailUtil.getBody(messages[0]);
+        assertTrue(body.contains("DataTransfer failed"));
+        assertTrue(body.contains("boom"));
+    }
+
+    @Test
+    void progressEventsAreMergedIntoOneDigest() throws Exception {
+        try (NotificationService service = new NotificationService(props(1))) {
+            service.progress("page 1");
+            service.warning("3 rows rejected");
+            assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        }
+        MimeMessage[] messages = greenMail.getReceivedMessages();
+        assertEquals(1, messages.length);
+        assertEquals("[test] Progress", messages[0].getSubject());
+        String body = GreenMailUtil.getBody(messages[0]);
+        assertTrue(body.contains("PROGRESS page 1"));
+        assertTrue(body.contains("WARNING 3 rows rejected"));
+    }
+
+    @Test
+    void mailUtilReusesSenderPerPropertiesFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("mail.properties");
+        Files.writeString(file, "mail.host=localhost\nmail.port=" + ServerSetupTest.SMTP.getPort() + "\n"
+            + "mail.username=batch@localhost\nmail.password=\n");
+        assertSame(MailUtil.getMailSender(file.toString()), MailUtil.getMailSender(file.toString()));
+
+        MailUtil.sendMail(file.toString(), "ops@localhost", "hello", "body");
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        assertEquals("hello", greenMail.getReceivedMessages()[0].getSubject());
+    }
+
+    private static NotificationProperties props(int digestSeconds) {
+        NotificationProperties props = new NotificationProperties();
+        props.setEnabled(true);
+        props.setHost("localhost");
+        props.setPort(ServerSetupTest.SMTP.getPort());
+        props.setFrom("batch@localhost");
+        props.setTo(List.of("ops@localhost"));
+        props.setSubjectPrefix("[test]");
+        props.setDigestSeconds(digestSeconds);
+        props.setShutdownWaitSeconds(5);
+        return props;
+    }
+}